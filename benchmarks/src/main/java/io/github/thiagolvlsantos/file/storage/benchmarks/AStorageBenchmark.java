@@ -0,0 +1,73 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import io.github.thiagolvlsantos.file.storage.IFileStorage;
+import io.github.thiagolvlsantos.git.commons.file.FileUtils;
+
+/**
+ * Storage in a fresh temporary directory per trial. Subclasses add storage
+ * properties and prepare data before measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AStorageBenchmark {
+
+	protected ConfigurableApplicationContext context;
+	protected IFileStorage storage;
+	protected File dir;
+
+	@Setup(Level.Trial)
+	public void start() throws IOException {
+		dir = Files.createTempDirectory("file-storage-benchmark").toFile();
+		Map<String, Object> properties = new HashMap<>();
+		// per operation logs would dominate
+		properties.put("logging.level.root", "WARN");
+		properties(properties);
+		context = new SpringApplicationBuilder(BenchmarkConfiguration.class)//
+				.web(WebApplicationType.NONE)//
+				.bannerMode(Banner.Mode.OFF)//
+				.logStartupInfo(false)//
+				.properties(properties)//
+				.run();
+		storage = context.getBean(IFileStorage.class);
+		prepare();
+	}
+
+	protected void properties(Map<String, Object> properties) {
+	}
+
+	protected void prepare() throws IOException {
+	}
+
+	@TearDown(Level.Trial)
+	public void stop() throws IOException {
+		context.close();
+		FileUtils.delete(dir);
+	}
+}
@@ -0,0 +1,10 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import org.springframework.context.annotation.Configuration;
+
+import io.github.thiagolvlsantos.file.storage.EnableFileStorage;
+
+@Configuration
+@EnableFileStorage
+public class BenchmarkConfiguration {
+}
@@ -0,0 +1,85 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import io.github.thiagolvlsantos.file.storage.IFileStorage;
+import io.github.thiagolvlsantos.file.storage.objects.Product;
+import io.github.thiagolvlsantos.file.storage.objects.Project;
+import io.github.thiagolvlsantos.file.storage.objects.ProjectAlias;
+import io.github.thiagolvlsantos.file.storage.resource.Resource;
+import io.github.thiagolvlsantos.file.storage.resource.ResourceContent;
+import io.github.thiagolvlsantos.file.storage.resource.ResourceMetadata;
+
+/**
+ * Objects of the test entities, deterministic for a given index.
+ */
+public final class DataGenerator {
+
+	private static final int BATCH = 1000;
+	private static final int GROUPS = 10;
+
+	private DataGenerator() {
+	}
+
+	public static String name(String prefix, int index) {
+		return String.format("%s%08d", prefix, index);
+	}
+
+	/**
+	 * Projects share their description with one in {@value #GROUPS} others.
+	 */
+	public static Project project(int index) {
+		return Project.builder().name(name("project", index)).description(group(index)).build();
+	}
+
+	public static String group(int index) {
+		return "group" + (index % GROUPS);
+	}
+
+	public static Product product(String project, int index) {
+		return Product.builder().project(new ProjectAlias(project)).name(name("product", index))
+				.description(group(index)).build();
+	}
+
+	public static Plain plain(int index) {
+		return new Plain(null, name("plain", index), group(index));
+	}
+
+	public static List<Project> projects(int from, int to) {
+		return list(from, to, DataGenerator::project);
+	}
+
+	public static List<Plain> plains(int from, int to) {
+		return list(from, to, DataGenerator::plain);
+	}
+
+	private static <T> List<T> list(int from, int to, IntFunction<T> factory) {
+		List<T> result = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			result.add(factory.apply(i));
+		}
+		return result;
+	}
+
+	public static Resource resource(String path, int size) {
+		byte[] data = new byte[size];
+		new Random(path.hashCode()).nextBytes(data);
+		return Resource.builder()//
+				.metadata(ResourceMetadata.builder().path(path).contentType("application/octet-stream").build())//
+				.content(ResourceContent.builder().data(data).build())//
+				.build();
+	}
+
+	/**
+	 * Write <code>count</code> objects in bulk.
+	 */
+	public static <T> void write(IFileStorage storage, File dir, Class<T> type, IntFunction<T> factory, int count) {
+		for (int from = 0; from < count; from += BATCH) {
+			storage.writeAll(dir, type, list(from, Math.min(count, from + BATCH), factory));
+		}
+	}
+}
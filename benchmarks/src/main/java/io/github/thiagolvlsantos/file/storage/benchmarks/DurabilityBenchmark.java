@@ -0,0 +1,49 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Threads;
+
+import io.github.thiagolvlsantos.file.storage.IFileWriter;
+
+/**
+ * Concurrent writes of distinct small files, each flushed to disk on its own
+ * (sync) or sharing a journal flush per batch (group).
+ */
+@Threads(8)
+public class DurabilityBenchmark extends AStorageBenchmark {
+
+	private static final int FILES = 1000;
+
+	@Param({ "sync", "group" })
+	public String durability;
+
+	private IFileWriter writer;
+	private byte[] data;
+	private final AtomicInteger next = new AtomicInteger();
+
+	@Override
+	protected void properties(Map<String, Object> properties) {
+		properties.put("file.storage.durability", durability);
+		properties.put("file.storage.durability.group.journal", new File(dir, "journal").getPath());
+	}
+
+	@Override
+	protected void prepare() {
+		writer = context.getBean(IFileWriter.class);
+		data = new byte[512];
+		Arrays.fill(data, (byte) 'x');
+	}
+
+	@Benchmark
+	public File write() {
+		File file = new File(dir, "file" + next.getAndIncrement() % FILES + ".json");
+		writer.write(file, data);
+		return file;
+	}
+}
@@ -0,0 +1,41 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Threads;
+
+import io.github.thiagolvlsantos.file.storage.impl.FileIndexImpl;
+import io.github.thiagolvlsantos.file.storage.objects.Project;
+
+/**
+ * Id allocation by concurrent threads, per block size and lock kind.
+ */
+@Threads(4)
+public class IndexBenchmark extends AStorageBenchmark {
+
+	@Param({ "1", "64" })
+	public int block;
+
+	@Param({ FileIndexImpl.LOCK_JVM, FileIndexImpl.LOCK_PROCESS })
+	public String lock;
+
+	private FileIndexImpl index;
+
+	@Override
+	protected void properties(Map<String, Object> properties) {
+		properties.put("file.storage.index.block", block);
+		properties.put("file.storage.index.lock", lock);
+	}
+
+	@Override
+	protected void prepare() {
+		index = context.getBean(FileIndexImpl.class);
+	}
+
+	@Benchmark
+	public Object next() {
+		return index.next(dir, Project.class, null);
+	}
+}
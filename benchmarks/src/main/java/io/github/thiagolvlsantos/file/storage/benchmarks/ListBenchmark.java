@@ -0,0 +1,63 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+import io.github.thiagolvlsantos.file.storage.SearchParams;
+import io.github.thiagolvlsantos.file.storage.objects.Project;
+import io.github.thiagolvlsantos.file.storage.search.FileFilter;
+import io.github.thiagolvlsantos.file.storage.search.FilePaging;
+import io.github.thiagolvlsantos.file.storage.search.FileSorting;
+
+/**
+ * Full scans with filter, sort and paging over repositories of different
+ * sizes.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListBenchmark extends AStorageBenchmark {
+
+	private static final int PAGE = 20;
+
+	@Param({ "1000", "10000", "100000" })
+	public int size;
+
+	private SearchParams filter;
+	private SearchParams sort;
+	private SearchParams page;
+
+	@Override
+	protected void prepare() {
+		DataGenerator.write(storage, dir, Project.class, DataGenerator::project, size);
+		String group = DataGenerator.group(3);
+		filter = SearchParams.builder()
+				.filter(new FileFilter(o -> group.equals(((Project) o).getDescription()))).build();
+		sort = SearchParams.builder()
+				.sorting(FileSorting.builder().property("name").sort(FileSorting.SORT_DESCENDING).build())
+				.paging(FilePaging.builder().skip(0).max(PAGE).build()).build();
+		page = SearchParams.builder().paging(FilePaging.builder().skip(size / 2).max(PAGE).build()).build();
+	}
+
+	@Benchmark
+	public long count() {
+		return storage.count(dir, Project.class, null);
+	}
+
+	@Benchmark
+	public List<Project> filter() {
+		return storage.list(dir, Project.class, filter);
+	}
+
+	@Benchmark
+	public List<Project> sortPage() {
+		return storage.list(dir, Project.class, sort);
+	}
+
+	@Benchmark
+	public List<Project> page() {
+		return storage.list(dir, Project.class, page);
+	}
+}
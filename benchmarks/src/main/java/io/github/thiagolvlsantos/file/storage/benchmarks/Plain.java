@@ -0,0 +1,30 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import io.github.thiagolvlsantos.file.storage.entity.FileRepo;
+import io.github.thiagolvlsantos.file.storage.identity.FileId;
+import io.github.thiagolvlsantos.file.storage.identity.FileKey;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Object with the minimal annotations, no revision nor audit.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@FileRepo(Plain.REPO)
+public class Plain {
+
+	public static final String REPO = "plains";
+
+	@FileId
+	private Long id;
+
+	@FileKey
+	private String name;
+
+	private String description;
+}
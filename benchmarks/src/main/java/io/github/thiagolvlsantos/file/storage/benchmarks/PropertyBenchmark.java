@@ -0,0 +1,35 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import io.github.thiagolvlsantos.file.storage.SearchParams;
+import io.github.thiagolvlsantos.file.storage.objects.Project;
+import io.github.thiagolvlsantos.file.storage.search.FileFilter;
+
+/**
+ * Property changes of the objects matching a search, one in ten of the
+ * repository.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PropertyBenchmark extends AStorageBenchmark {
+
+	private static final int SIZE = 1000;
+
+	private SearchParams search;
+	private int next;
+
+	@Override
+	protected void prepare() {
+		DataGenerator.write(storage, dir, Project.class, DataGenerator::project, SIZE);
+		search = SearchParams.builder().filter(new FileFilter(o -> ((Project) o).getName().endsWith("0"))).build();
+	}
+
+	@Benchmark
+	public List<Project> setProperty() {
+		return storage.setProperty(dir, Project.class, "description", "changed" + next++, search);
+	}
+}
@@ -0,0 +1,57 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import io.github.thiagolvlsantos.file.storage.KeyParams;
+import io.github.thiagolvlsantos.file.storage.objects.Product;
+import io.github.thiagolvlsantos.file.storage.objects.Project;
+
+/**
+ * Reads and existence checks by keys, for single key projects and products
+ * keyed by project and name.
+ */
+public class ReadBenchmark extends AStorageBenchmark {
+
+	private static final int PROJECTS = 10;
+	private static final int PRODUCTS = 1000;
+
+	private int next;
+
+	@Override
+	protected void prepare() {
+		DataGenerator.write(storage, dir, Project.class, DataGenerator::project, PROJECTS);
+		DataGenerator.write(storage, dir, Product.class, i -> DataGenerator.product(project(i), i), PRODUCTS);
+	}
+
+	private static String project(int product) {
+		return DataGenerator.name("project", product % PROJECTS);
+	}
+
+	private KeyParams product() {
+		int i = next++ % PRODUCTS;
+		// of(String, String) would take a separator
+		return KeyParams.of(Arrays.asList(project(i), DataGenerator.name("product", i)));
+	}
+
+	@Benchmark
+	public Project readProject() {
+		return storage.read(dir, Project.class, KeyParams.of(DataGenerator.name("project", next++ % PROJECTS)));
+	}
+
+	@Benchmark
+	public Product readProduct() {
+		return storage.read(dir, Product.class, product());
+	}
+
+	@Benchmark
+	public boolean existsHit() {
+		return storage.exists(dir, Product.class, product());
+	}
+
+	@Benchmark
+	public boolean existsMiss() {
+		return storage.exists(dir, Product.class, KeyParams.of(Arrays.asList(project(next), "missing" + next++)));
+	}
+}
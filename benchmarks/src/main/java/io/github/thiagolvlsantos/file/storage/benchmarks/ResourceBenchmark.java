@@ -0,0 +1,55 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import io.github.thiagolvlsantos.file.storage.KeyParams;
+import io.github.thiagolvlsantos.file.storage.objects.Project;
+import io.github.thiagolvlsantos.file.storage.resource.Resource;
+
+/**
+ * Resource writes, reads and listings by payload size.
+ */
+public class ResourceBenchmark extends AStorageBenchmark {
+
+	private static final int RESOURCES = 20;
+
+	@Param({ "1024", "65536", "1048576" })
+	public int payload;
+
+	private KeyParams keys;
+	private Resource[] resources;
+	private int next;
+
+	@Override
+	protected void prepare() {
+		Project project = storage.write(dir, DataGenerator.project(0));
+		keys = KeyParams.of(project.getName());
+		resources = new Resource[RESOURCES];
+		for (int i = 0; i < RESOURCES; i++) {
+			resources[i] = DataGenerator.resource(path(i), payload);
+			storage.setResource(dir, Project.class, keys, resources[i]);
+		}
+	}
+
+	private static String path(int index) {
+		return "files/" + DataGenerator.name("resource", index);
+	}
+
+	@Benchmark
+	public Project setResource() {
+		return storage.setResource(dir, Project.class, keys, resources[next++ % RESOURCES]);
+	}
+
+	@Benchmark
+	public Resource getResource() {
+		return storage.getResource(dir, Project.class, keys, path(next++ % RESOURCES));
+	}
+
+	@Benchmark
+	public List<Resource> listResources() {
+		return storage.listResources(dir, Project.class, keys, null);
+	}
+}
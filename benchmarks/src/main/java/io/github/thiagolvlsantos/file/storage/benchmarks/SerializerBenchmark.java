@@ -0,0 +1,56 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import io.github.thiagolvlsantos.file.storage.IFileSerializer;
+
+/**
+ * Serializer calls on a small object: encode and decode in memory, copy, and
+ * write and read of its file.
+ */
+public class SerializerBenchmark extends AStorageBenchmark {
+
+	private IFileSerializer serializer;
+	private Plain plain;
+	private byte[] data;
+	private File file;
+
+	@Override
+	protected void prepare() {
+		serializer = context.getBean(IFileSerializer.class);
+		plain = DataGenerator.plain(1);
+		plain.setId(1L);
+		data = serializer.encode(plain).getBytes(StandardCharsets.UTF_8);
+		file = new File(dir, "plain.json");
+		serializer.writeValue(file, plain);
+	}
+
+	@Benchmark
+	public String encode() {
+		return serializer.encode(plain);
+	}
+
+	@Benchmark
+	public Plain decode() {
+		return serializer.decode(data, Plain.class);
+	}
+
+	@Benchmark
+	public Plain copy() {
+		return serializer.copy(plain);
+	}
+
+	@Benchmark
+	public File writeValue() {
+		serializer.writeValue(file, plain);
+		return file;
+	}
+
+	@Benchmark
+	public Plain readValue() {
+		return serializer.readValue(file, Plain.class);
+	}
+}
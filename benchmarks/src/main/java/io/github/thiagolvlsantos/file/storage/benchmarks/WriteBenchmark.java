@@ -0,0 +1,51 @@
+package io.github.thiagolvlsantos.file.storage.benchmarks;
+
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import io.github.thiagolvlsantos.file.storage.objects.Project;
+
+/**
+ * Writes of new objects and updates of existing ones, for objects with
+ * revision and audit attributes (project) and without them (plain).
+ */
+public class WriteBenchmark extends AStorageBenchmark {
+
+	private static final int EXISTING = 1000;
+
+	@Param({ "project", "plain" })
+	public String entity;
+
+	@Param({ "new", "update" })
+	public String mode;
+
+	private Object[] objects;
+	private int next;
+
+	@Override
+	protected void prepare() {
+		if ("update".equals(mode)) {
+			List<?> written = "project".equals(entity) //
+					? storage.writeAll(dir, Project.class, DataGenerator.projects(0, EXISTING))
+					: storage.writeAll(dir, Plain.class, DataGenerator.plains(0, EXISTING));
+			objects = written.toArray();
+		}
+	}
+
+	private Object instance(int index) {
+		return "project".equals(entity) ? DataGenerator.project(index) : DataGenerator.plain(index);
+	}
+
+	@Benchmark
+	public Object write() {
+		if ("new".equals(mode)) {
+			return storage.write(dir, instance(next++));
+		}
+		int i = next++ % EXISTING;
+		// the returned version carries the new revision
+		objects[i] = storage.write(dir, objects[i]);
+		return objects[i];
+	}
+}
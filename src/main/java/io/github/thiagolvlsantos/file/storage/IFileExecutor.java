@@ -0,0 +1,28 @@
+package io.github.thiagolvlsantos.file.storage;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Executor of storage work over many objects, like bulk reads, which may run
+ * in parallel.
+ */
+public interface IFileExecutor {
+
+	int getParallelism();
+
+	/**
+	 * @return <code>true</code> when items run on virtual threads, so blocking
+	 *         I/O of many small files may use one thread per file.
+	 */
+	default boolean isVirtual() {
+		return false;
+	}
+
+	/**
+	 * Apply a function to all items. Exceptions of any item are rethrown.
+	 *
+	 * @return the results in the order of items.
+	 */
+	<T, R> List<R> map(List<T> items, Function<? super T, ? extends R> function);
+}
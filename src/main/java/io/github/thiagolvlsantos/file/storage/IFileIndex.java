@@ -1,6 +1,8 @@
 package io.github.thiagolvlsantos.file.storage;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.stream.Stream;
 
 import io.github.thiagolvlsantos.file.storage.annotations.PairValue;
 import io.github.thiagolvlsantos.file.storage.identity.FileId;
@@ -13,9 +15,32 @@ public interface IFileIndex {
 
 	Object next(File dir, Class<?> type, PairValue<FileId> info);
 
+	/**
+	 * Allocate several ids at once, for bulk writes.
+	 */
+	default Object[] next(File dir, Class<?> type, PairValue<FileId> info, int count) {
+		Object[] result = new Object[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = next(dir, type, info);
+		}
+		return result;
+	}
+
 	<T> void bind(File dir, T instance);
 
+	default <T> void bindAll(File dir, Collection<T> instances) {
+		for (T instance : instances) {
+			bind(dir, instance);
+		}
+	}
+
 	<T> void unbind(File dir, T instance);
 
 	File directory(File dir, Class<?> type, String kind);
+
+	/**
+	 * Keys of all bound objects of a type, in index order. The stream may hold
+	 * resources and must be closed.
+	 */
+	Stream<Object[]> keys(File dir, Class<?> type);
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package io.github.thiagolvlsantos.file.storage;
+
+import java.io.File;
+import java.util.Collection;
+
+/**
+ * Read/write locks of objects, identified by their directory. Reads of an
+ * object share its lock, changes hold it exclusively. Locks are reentrant,
+ * and a thread holding the write lock may also read.
+ */
+public interface IFileLocks {
+
+	/**
+	 * Lock held until closed.
+	 */
+	interface Hold extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	Hold read(File entity);
+
+	Hold write(File entity);
+
+	/**
+	 * Write locks of several objects, taken in a global order.
+	 */
+	Hold write(Collection<File> entities);
+}
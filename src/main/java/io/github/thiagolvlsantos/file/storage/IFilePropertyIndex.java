@@ -0,0 +1,36 @@
+package io.github.thiagolvlsantos.file.storage;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+import io.github.thiagolvlsantos.file.storage.search.FileCondition;
+
+public interface IFilePropertyIndex {
+
+	String INDEXED = "indexed";
+
+	boolean isIndexed(Class<?> type, String property);
+
+	<T> boolean isStale(File dir, Class<T> type);
+
+	<T> void rebuild(File dir, Class<T> type, Stream<T> all);
+
+	<T> void update(File dir, Class<T> type, T instance);
+
+	default <T> void updateAll(File dir, Class<T> type, Collection<T> instances) {
+		for (T instance : instances) {
+			update(dir, type, instance);
+		}
+	}
+
+	<T> void remove(File dir, Class<T> type, T instance);
+
+	/**
+	 * Keys of objects matching a condition.
+	 *
+	 * @return the keys in index order, or <code>null</code> if the property is
+	 *         not indexed.
+	 */
+	<T> Collection<Object[]> lookup(File dir, Class<T> type, FileCondition condition);
+}
@@ -2,11 +2,29 @@ package io.github.thiagolvlsantos.file.storage;
 
 import java.io.File;
 import java.lang.reflect.AnnotatedType;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 
 public interface IFileSerializer {
 
 	<T> String getFile(Class<T> type);
 
+	/**
+	 * Object file names accepted when reading, the one written by
+	 * {@link #getFile(Class)} first.
+	 */
+	default <T> List<String> getFiles(Class<T> type) {
+		return Collections.singletonList(getFile(type));
+	}
+
+	/**
+	 * Suffix of resource metadata files, written with {@link #encode(Object)}.
+	 */
+	default <T> String getMetadataFile(Class<T> type) {
+		return getFile(type);
+	}
+
 	<T> boolean isWrapped(Class<T> type);
 
 	<T> T decode(byte[] data, Class<T> type);
@@ -19,4 +37,27 @@ public interface IFileSerializer {
 
 	<T> void writeValue(File file, T instance);
 
+	/**
+	 * Write an object through a writer, which may give another file to write.
+	 */
+	default <T> void writeValue(File file, T instance, IFileWriter writer) {
+		writer.write(file, f -> writeValue(f, instance));
+	}
+
+	/**
+	 * Write the data file of an entity, read back as the given type. Other
+	 * files, as log payloads, use {@link #writeValue(File, Object, IFileWriter)}.
+	 */
+	default <T> void writeValue(File file, T instance, Class<T> type, IFileWriter writer) {
+		writeValue(file, instance, writer);
+	}
+
+	/**
+	 * Deep copy of an object, as written and read back.
+	 */
+	@SuppressWarnings("unchecked")
+	default <T> T copy(T instance) {
+		return instance == null ? null : (T) decode(encode(instance).getBytes(StandardCharsets.UTF_8), instance.getClass());
+	}
+
 }
@@ -1,9 +1,13 @@
 package io.github.thiagolvlsantos.file.storage;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
+import io.github.thiagolvlsantos.file.storage.concurrency.FileRevision;
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageConcurrencyException;
 import io.github.thiagolvlsantos.file.storage.resource.Resource;
 
 public interface IFileStorage {
@@ -30,12 +34,38 @@ public interface IFileStorage {
 
 	<T> T write(File dir, Class<T> type, T instance);
 
+	/**
+	 * Write only if the stored {@link FileRevision} is still the expected
+	 * one, checked and replaced atomically for the object.
+	 *
+	 * @param expectedRevision revision the change is based on, -1 when the
+	 *                         object must not exist yet.
+	 * @throws FileStorageConcurrencyException if the stored revision differs.
+	 */
+	<T> T writeIfRevision(File dir, Class<T> type, T instance, long expectedRevision);
+
+	/**
+	 * Write several objects of a type. Metadata is resolved once, ids are
+	 * allocated in one block and index entries are written in one pass.
+	 *
+	 * @return the saved instances, in the given order.
+	 */
+	<T> List<T> writeAll(File dir, Class<T> type, Collection<T> instances);
+
 	<T> T read(File dir, T example);
 
 	<T> T read(File dir, Class<T> type, T example);
 
 	<T> T read(File dir, Class<T> type, KeyParams keys);
 
+	/**
+	 * Read several objects by keys, possibly in parallel.
+	 *
+	 * @return the objects in the order of keys, <code>null</code> for objects
+	 *         not found.
+	 */
+	<T> List<T> readAll(File dir, Class<T> type, Collection<KeyParams> keys);
+
 	<T> T delete(File dir, T example);
 
 	<T> T delete(File dir, Class<T> type, T example);
@@ -46,6 +76,13 @@ public interface IFileStorage {
 
 	<T> List<T> list(File dir, Class<T> type, SearchParams search);
 
+	/**
+	 * Lazy version of {@link #list(File, Class, SearchParams)}. Objects are read
+	 * on demand, so unsorted searches stop reading files once paging is
+	 * satisfied. The result must be closed, i.e. with try-with-resources.
+	 */
+	<T> Stream<T> stream(File dir, Class<T> type, SearchParams search);
+
 	// +------------- PROPERTY METHODS ------------------+
 
 	<T> T setProperty(File dir, Class<T> type, KeyParams keys, String property, Object data);
@@ -72,4 +109,11 @@ public interface IFileStorage {
 	<T> long countResources(File dir, Class<T> type, KeyParams keys, SearchParams search);
 
 	<T> List<Resource> listResources(File dir, Class<T> type, KeyParams keys, SearchParams search);
+
+	/**
+	 * Lazy version of {@link #listResources(File, Class, KeyParams, SearchParams)}.
+	 * Resource files are listed at once, their contents read on demand. The
+	 * result must be closed, i.e. with try-with-resources.
+	 */
+	<T> Stream<Resource> streamResources(File dir, Class<T> type, KeyParams keys, SearchParams search);
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package io.github.thiagolvlsantos.file.storage;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.reactivestreams.Publisher;
+
+import io.github.thiagolvlsantos.file.storage.resource.Resource;
+
+/**
+ * Non-blocking view of {@link IFileStorage}, each call runs on a bounded I/O
+ * executor. When the executor is saturated the returned future fails at once
+ * with a {@link java.util.concurrent.RejectedExecutionException} cause, so
+ * callers can back off. Locations are taken from {@link #getStorage()}, lazy
+ * scans are published to subscribers instead.
+ */
+public interface IFileStorageAsync {
+
+	IFileStorage getStorage();
+
+	// +------------- ENTITY METHODS ------------------+
+
+	<T> CompletableFuture<Boolean> exists(File dir, Class<T> type, T example);
+
+	<T> CompletableFuture<Boolean> exists(File dir, Class<T> type, KeyParams keys);
+
+	<T> CompletableFuture<T> write(File dir, Class<T> type, T instance);
+
+	<T> CompletableFuture<T> writeIfRevision(File dir, Class<T> type, T instance, long expectedRevision);
+
+	<T> CompletableFuture<List<T>> writeAll(File dir, Class<T> type, Collection<T> instances);
+
+	<T> CompletableFuture<T> read(File dir, Class<T> type, T example);
+
+	<T> CompletableFuture<T> read(File dir, Class<T> type, KeyParams keys);
+
+	<T> CompletableFuture<List<T>> readAll(File dir, Class<T> type, Collection<KeyParams> keys);
+
+	<T> CompletableFuture<T> delete(File dir, Class<T> type, T example);
+
+	<T> CompletableFuture<T> delete(File dir, Class<T> type, KeyParams keys);
+
+	<T> CompletableFuture<Long> count(File dir, Class<T> type, SearchParams search);
+
+	<T> CompletableFuture<List<T>> list(File dir, Class<T> type, SearchParams search);
+
+	/**
+	 * Objects of {@link IFileStorage#stream(File, Class, SearchParams)} read
+	 * as subscribers request them, the stream is closed on cancel.
+	 */
+	<T> Publisher<T> publish(File dir, Class<T> type, SearchParams search);
+
+	// +------------- PROPERTY METHODS ------------------+
+
+	<T> CompletableFuture<T> setProperty(File dir, Class<T> type, KeyParams keys, String property, Object data);
+
+	<T> CompletableFuture<List<T>> setProperty(File dir, Class<T> type, String property, Object data,
+			SearchParams search);
+
+	<T> CompletableFuture<Object> getProperty(File dir, Class<T> type, KeyParams keys, String property);
+
+	<T> CompletableFuture<Map<String, Object>> properties(File dir, Class<T> type, KeyParams keys, KeyParams names);
+
+	<T> CompletableFuture<Map<String, Map<String, Object>>> properties(File dir, Class<T> type, KeyParams names,
+			SearchParams search);
+
+	// +------------- RESOURCE METHODS ------------------+
+
+	<T> CompletableFuture<Boolean> existsResource(File dir, Class<T> type, KeyParams keys, String path);
+
+	<T> CompletableFuture<T> setResource(File dir, Class<T> type, KeyParams keys, Resource resource);
+
+	<T> CompletableFuture<Resource> getResource(File dir, Class<T> type, KeyParams keys, String path);
+
+	<T> CompletableFuture<T> deleteResource(File dir, Class<T> type, KeyParams keys, String path);
+
+	<T> CompletableFuture<Long> countResources(File dir, Class<T> type, KeyParams keys, SearchParams search);
+
+	<T> CompletableFuture<List<Resource>> listResources(File dir, Class<T> type, KeyParams keys, SearchParams search);
+
+	/**
+	 * Resources of
+	 * {@link IFileStorage#streamResources(File, Class, KeyParams, SearchParams)}
+	 * read as subscribers request them.
+	 */
+	<T> Publisher<Resource> publishResources(File dir, Class<T> type, KeyParams keys, SearchParams search);
+}
@@ -0,0 +1,72 @@
+package io.github.thiagolvlsantos.file.storage;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.reactivestreams.Publisher;
+
+import io.github.thiagolvlsantos.file.storage.resource.Resource;
+
+public interface IFileStorageAsyncTyped<T> {
+
+	Class<T> type();
+
+	// +------------- ENTITY METHODS ------------------+
+
+	CompletableFuture<Boolean> exists(File dir, T example);
+
+	CompletableFuture<Boolean> exists(File dir, KeyParams keys);
+
+	CompletableFuture<T> write(File dir, T instance);
+
+	CompletableFuture<T> writeIfRevision(File dir, T instance, long expectedRevision);
+
+	CompletableFuture<List<T>> writeAll(File dir, Collection<T> instances);
+
+	CompletableFuture<T> read(File dir, T example);
+
+	CompletableFuture<T> read(File dir, KeyParams keys);
+
+	CompletableFuture<List<T>> readAll(File dir, Collection<KeyParams> keys);
+
+	CompletableFuture<T> delete(File dir, T example);
+
+	CompletableFuture<T> delete(File dir, KeyParams keys);
+
+	CompletableFuture<Long> count(File dir, SearchParams search);
+
+	CompletableFuture<List<T>> list(File dir, SearchParams search);
+
+	Publisher<T> publish(File dir, SearchParams search);
+
+	// +------------- PROPERTY METHODS ------------------+
+
+	CompletableFuture<T> setProperty(File dir, KeyParams keys, String property, Object data);
+
+	CompletableFuture<List<T>> setProperty(File dir, String property, Object data, SearchParams search);
+
+	CompletableFuture<Object> getProperty(File dir, KeyParams keys, String property);
+
+	CompletableFuture<Map<String, Object>> properties(File dir, KeyParams keys, KeyParams names);
+
+	CompletableFuture<Map<String, Map<String, Object>>> properties(File dir, KeyParams names, SearchParams search);
+
+	// +------------- RESOURCE METHODS ------------------+
+
+	CompletableFuture<Boolean> existsResource(File dir, KeyParams keys, String path);
+
+	CompletableFuture<T> setResource(File dir, KeyParams keys, Resource resource);
+
+	CompletableFuture<Resource> getResource(File dir, KeyParams keys, String path);
+
+	CompletableFuture<T> deleteResource(File dir, KeyParams keys, String path);
+
+	CompletableFuture<Long> countResources(File dir, KeyParams keys, SearchParams search);
+
+	CompletableFuture<List<Resource>> listResources(File dir, KeyParams keys, SearchParams search);
+
+	Publisher<Resource> publishResources(File dir, KeyParams keys, SearchParams search);
+}
@@ -1,8 +1,10 @@
 package io.github.thiagolvlsantos.file.storage;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import io.github.thiagolvlsantos.file.storage.resource.Resource;
 
@@ -26,10 +28,16 @@ public interface IFileStorageTyped<T> {
 
 	T write(File dir, T instance);
 
+	T writeIfRevision(File dir, T instance, long expectedRevision);
+
+	List<T> writeAll(File dir, Collection<T> instances);
+
 	T read(File dir, T example);
 
 	T read(File dir, KeyParams keys);
 
+	List<T> readAll(File dir, Collection<KeyParams> keys);
+
 	T delete(File dir, T example);
 
 	T delete(File dir, KeyParams keys);
@@ -38,6 +46,8 @@ public interface IFileStorageTyped<T> {
 
 	List<T> list(File dir, SearchParams search);
 
+	Stream<T> stream(File dir, SearchParams search);
+
 	// +------------- PROPERTY METHODS ------------------+
 
 	T setProperty(File dir, KeyParams keys, String property, Object data);
@@ -65,4 +75,6 @@ public interface IFileStorageTyped<T> {
 	long countResources(File dir, KeyParams keys, SearchParams search);
 
 	List<Resource> listResources(File dir, KeyParams keys, SearchParams search);
+
+	Stream<Resource> streamResources(File dir, KeyParams keys, SearchParams search);
 }
\ No newline at end of file
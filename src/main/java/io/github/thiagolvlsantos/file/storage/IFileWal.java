@@ -0,0 +1,57 @@
+package io.github.thiagolvlsantos.file.storage;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.Consumer;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Write-ahead log of object mutations spanning several files (object, id and
+ * property indexes, resources). Mutations are recorded, with the objects
+ * already prepared, before being applied; those not committed when a
+ * repository is opened again are redone.
+ */
+public interface IFileWal {
+
+	/**
+	 * Object written, ids already bound.
+	 */
+	String WRITE = "write";
+	/**
+	 * Object created, ids still to bind.
+	 */
+	String CREATE = "create";
+	/**
+	 * Object removed, the previous version recorded.
+	 */
+	String DELETE = "delete";
+
+	@Getter
+	@AllArgsConstructor
+	@ToString(exclude = "objects")
+	class Entry {
+		private final String id;
+		private final Class<?> type;
+		private final List<String> operations;
+		private final List<Object> objects;
+	}
+
+	boolean isEnabled();
+
+	/**
+	 * Redo the mutations of a repository not committed, once per repository.
+	 */
+	void recover(File dir, IFileSerializer serializer, Consumer<Entry> redo);
+
+	/**
+	 * Record mutations of objects, one operation per object.
+	 *
+	 * @return the entry to commit once applied.
+	 */
+	Entry begin(File dir, Class<?> type, List<String> operations, List<?> objects, IFileSerializer serializer);
+
+	void commit(File dir, Entry entry);
+}
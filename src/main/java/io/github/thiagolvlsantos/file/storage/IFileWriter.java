@@ -0,0 +1,76 @@
+package io.github.thiagolvlsantos.file.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+
+/**
+ * Writes, creates and removes storage files with the configured durability.
+ */
+public interface IFileWriter {
+
+	/**
+	 * Prefix of temporary files, which readers and listings must skip. Names
+	 * with it are reserved, storages reject resources using them.
+	 */
+	String TEMPORARY = ".~tmp.";
+
+	enum Durability {
+		/**
+		 * Files written in place, a crash may leave them partial.
+		 */
+		NONE,
+		/**
+		 * Files written aside and renamed over the target, readers see either
+		 * the old or the new content.
+		 */
+		ATOMIC,
+		/**
+		 * As {@link #ATOMIC}, and contents and directory entries are flushed
+		 * to disk before returning.
+		 */
+		SYNC,
+		/**
+		 * As {@link #SYNC}, with concurrent writers sharing one flush of a
+		 * journal per batch.
+		 */
+		GROUP
+	}
+
+	/**
+	 * Content of a file, written into the given file.
+	 */
+	@FunctionalInterface
+	interface Content {
+		void write(File file) throws IOException;
+	}
+
+	Durability getDurability();
+
+	void write(File target, Content content);
+
+	default void write(File target, byte[] data) {
+		write(target, f -> Files.write(f.toPath(), data));
+	}
+
+	/**
+	 * Create a directory and its missing parents.
+	 */
+	void mkdirs(File dir);
+
+	/**
+	 * Remove a file, or a directory with its contents.
+	 */
+	void delete(File file);
+
+	/**
+	 * Flush files, or directory entries, changed elsewhere to disk when the
+	 * durability requires it.
+	 */
+	void sync(Collection<File> files);
+
+	static boolean isTemporary(String name) {
+		return name.startsWith(TEMPORARY);
+	}
+}
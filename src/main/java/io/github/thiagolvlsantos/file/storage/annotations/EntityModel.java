@@ -0,0 +1,140 @@
+package io.github.thiagolvlsantos.file.storage.annotations;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.core.annotation.AnnotationUtils;
+
+import io.github.thiagolvlsantos.file.storage.audit.FileChanged;
+import io.github.thiagolvlsantos.file.storage.audit.FileChangedBy;
+import io.github.thiagolvlsantos.file.storage.audit.FileCreated;
+import io.github.thiagolvlsantos.file.storage.audit.FileCreatedBy;
+import io.github.thiagolvlsantos.file.storage.concurrency.FileRevision;
+import io.github.thiagolvlsantos.file.storage.entity.FileAliasFor;
+import io.github.thiagolvlsantos.file.storage.entity.FileName;
+import io.github.thiagolvlsantos.file.storage.entity.FileRepo;
+import io.github.thiagolvlsantos.file.storage.identity.FileId;
+import io.github.thiagolvlsantos.file.storage.identity.FileKey;
+import io.github.thiagolvlsantos.file.storage.search.FileIndexed;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Immutable description of how a type is persisted. Annotations and accessors
+ * are resolved once per class and shared through a concurrent registry, so hot
+ * paths like write do not walk the class hierarchy again.
+ *
+ * Property descriptors kept here are not bound to any instance, their
+ * <code>value</code> is always <code>null</code>. Use
+ * {@link PairValue#get(Object)} to read current values.
+ */
+@Getter
+public final class EntityModel {
+
+	private static final Map<Class<?>, EntityModel> REGISTRY = new ConcurrentHashMap<>();
+
+	private final Class<?> type;
+	private final FileRepo repo;
+	private final FileName name;
+	private final FileAliasFor alias;
+	private final PairValue<FileKey>[] keys;
+	private final PairValue<FileId>[] ids;
+	private final PairValue<FileCreated>[] created;
+	private final PairValue<FileCreatedBy>[] createdBy;
+	private final PairValue<FileChanged>[] changed;
+	private final PairValue<FileChangedBy>[] changedBy;
+	private final PairValue<FileRevision>[] revisions;
+	private final PairValue<FileKeep>[] keeps;
+	private final PairValue<FileIndexed>[] indexed;
+
+	@Getter(AccessLevel.NONE)
+	private final Map<Class<? extends Annotation>, PairValue<?>[]> others = new ConcurrentHashMap<>();
+
+	private EntityModel(Class<?> type) {
+		this.type = type;
+		this.repo = AnnotationUtils.findAnnotation(type, FileRepo.class);
+		this.name = AnnotationUtils.findAnnotation(type, FileName.class);
+		this.alias = AnnotationUtils.findAnnotation(type, FileAliasFor.class);
+		PairValue<FileKey>[] tmp = UtilAnnotations.describe(FileKey.class, type);
+		Arrays.sort(tmp, (a, b) -> a.getAnnotation().order() - b.getAnnotation().order());
+		this.keys = tmp;
+		this.ids = UtilAnnotations.describe(FileId.class, type);
+		this.created = UtilAnnotations.describe(FileCreated.class, type);
+		this.createdBy = UtilAnnotations.describe(FileCreatedBy.class, type);
+		this.changed = UtilAnnotations.describe(FileChanged.class, type);
+		this.changedBy = UtilAnnotations.describe(FileChangedBy.class, type);
+		this.revisions = UtilAnnotations.describe(FileRevision.class, type);
+		this.keeps = UtilAnnotations.describe(FileKeep.class, type);
+		this.indexed = UtilAnnotations.describe(FileIndexed.class, type);
+		others.put(FileKey.class, keys);
+		others.put(FileId.class, ids);
+		others.put(FileCreated.class, created);
+		others.put(FileCreatedBy.class, createdBy);
+		others.put(FileChanged.class, changed);
+		others.put(FileChangedBy.class, changedBy);
+		others.put(FileRevision.class, revisions);
+		others.put(FileKeep.class, keeps);
+		others.put(FileIndexed.class, indexed);
+	}
+
+	public static EntityModel of(Class<?> type) {
+		return REGISTRY.computeIfAbsent(type, EntityModel::new);
+	}
+
+	public PairValue<FileKey>[] getKeys() {
+		return keys.clone();
+	}
+
+	public PairValue<FileId>[] getIds() {
+		return ids.clone();
+	}
+
+	public PairValue<FileCreated>[] getCreated() {
+		return created.clone();
+	}
+
+	public PairValue<FileCreatedBy>[] getCreatedBy() {
+		return createdBy.clone();
+	}
+
+	public PairValue<FileChanged>[] getChanged() {
+		return changed.clone();
+	}
+
+	public PairValue<FileChangedBy>[] getChangedBy() {
+		return changedBy.clone();
+	}
+
+	public PairValue<FileRevision>[] getRevisions() {
+		return revisions.clone();
+	}
+
+	public PairValue<FileKeep>[] getKeeps() {
+		return keeps.clone();
+	}
+
+	public PairValue<FileIndexed>[] getIndexed() {
+		return indexed.clone();
+	}
+
+	public boolean isIndexed() {
+		return indexed.length > 0;
+	}
+
+	public String getFileName(String defaultName) {
+		return name != null ? name.value() : defaultName;
+	}
+
+	public boolean isAlias() {
+		return alias != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public <A extends Annotation> PairValue<A>[] values(Class<A> annotation) {
+		PairValue<A>[] result = (PairValue<A>[]) others.computeIfAbsent(annotation,
+				a -> UtilAnnotations.describe(annotation, type));
+		return result.clone();
+	}
+}
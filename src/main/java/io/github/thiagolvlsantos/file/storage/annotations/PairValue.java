@@ -1,18 +1,18 @@
 package io.github.thiagolvlsantos.file.storage.annotations;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
-import lombok.AllArgsConstructor;
+import io.github.thiagolvlsantos.file.storage.util.accessor.PropertyAccessors;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
 
 @Getter
-@AllArgsConstructor
-@Builder
 @ToString(onlyExplicitlyIncluded = true)
 public class PairValue<T> {
 	T annotation;
@@ -23,20 +23,47 @@ public class PairValue<T> {
 	private String name;
 	@ToString.Include
 	private Object value;
+	@Getter(AccessLevel.NONE)
+	private Function<Object, Object> getter;
+	@Getter(AccessLevel.NONE)
+	private BiConsumer<Object, Object> setter;
+
+	@Builder
+	public PairValue(T annotation, Field field, Method read, Method write, String name, Object value) {
+		this.annotation = annotation;
+		this.field = field;
+		this.read = read;
+		this.write = write;
+		this.name = name;
+		this.value = value;
+		this.getter = PropertyAccessors.getter(read);
+		this.setter = PropertyAccessors.setter(write);
+	}
+
+	public PairValue<T> bind(Object instance) {
+		return new PairValue<>(annotation, field, read, write, name, get(instance));
+	}
 
 	public void set(Object instance, Object value) {
+		if (setter == null) {
+			throw new FileStorageException("Property '" + name + "' is not writable.", null);
+		}
 		try {
-			getWrite().invoke(instance, value);
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			setter.accept(instance, value);
+		} catch (FileStorageException e) {
+			throw e;
+		} catch (RuntimeException e) {
 			throw new FileStorageException(e.getMessage(), e);
 		}
 	}
 
 	public Object get(Object instance) {
 		try {
-			return getRead().invoke(instance);
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+			return getter.apply(instance);
+		} catch (FileStorageException e) {
+			throw e;
+		} catch (RuntimeException e) {
 			throw new FileStorageException(e.getMessage(), e);
 		}
 	}
-}
\ No newline at end of file
+}
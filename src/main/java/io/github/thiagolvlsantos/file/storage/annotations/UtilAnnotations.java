@@ -3,20 +3,17 @@ package io.github.thiagolvlsantos.file.storage.annotations;
 import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.core.annotation.AnnotationUtils;
 
 import io.github.thiagolvlsantos.file.storage.KeyParams;
-import io.github.thiagolvlsantos.file.storage.entity.FileAliasFor;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
 import io.github.thiagolvlsantos.file.storage.identity.FileId;
 import io.github.thiagolvlsantos.file.storage.identity.FileKey;
@@ -29,36 +26,45 @@ public class UtilAnnotations {
 
 	@SuppressWarnings("unchecked")
 	public static <T extends Annotation> PairValue<T>[] getValues(Class<T> annotation, Class<?> type, Object instance) {
+		PairValue<T>[] descriptors = EntityModel.of(type).values(annotation);
+		PairValue<T>[] result = new PairValue[descriptors.length];
+		for (int i = 0; i < descriptors.length; i++) {
+			result[i] = descriptors[i].bind(instance);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T extends Annotation> PairValue<T>[] describe(Class<T> annotation, Class<?> type) {
 		try {
 			List<PairValue<?>> result = new LinkedList<>();
 			Class<?> clazz = type;
 			int index = 0;
-			while (clazz != Object.class) {
+			while (clazz != null && clazz != Object.class) {
 				Field[] fields = clazz.getDeclaredFields();
 				for (Field f : fields) {
 					Annotation a = AnnotationUtils.findAnnotation(f, annotation);
 					if (a != null) {
-						result.add(index++, fromField(clazz, instance, a, f));
+						result.add(index++, fromField(clazz, a, f));
 					}
 				}
 				Method[] methods = clazz.getDeclaredMethods();
 				for (Method m : methods) {
 					Annotation a = AnnotationUtils.findAnnotation(m, annotation);
 					if (a != null) {
-						result.add(index++, fromMethod(instance, m, a));
+						result.add(index++, fromMethod(m, a));
 					}
 				}
 				clazz = clazz.getSuperclass();
 				index = 0;
 			}
 			return result.toArray(new PairValue[0]);
-		} catch (SecurityException | IllegalAccessException | InvocationTargetException e) {
+		} catch (SecurityException e) {
 			throw new FileStorageException(e.getMessage(), e);
 		}
 	}
 
-	private static PairValue<Object> fromField(Class<?> clazz, Object instance, Annotation a, Field f)
-			throws IllegalAccessException, InvocationTargetException {
+	private static PairValue<Object> fromField(Class<?> clazz, Annotation a, Field f) {
 		PropertyDescriptor pd = BeanUtils.getPropertyDescriptor(clazz, f.getName());
 		if (pd == null) {
 			throw new FileStorageException(
@@ -66,33 +72,30 @@ public class UtilAnnotations {
 		}
 		Method read = pd.getReadMethod();
 		Method write = pd.getWriteMethod();
-		return PairValue.builder().annotation(a).field(f).read(read).write(write).name(f.getName())
-				.value(read.invoke(instance)).build();
+		return PairValue.builder().annotation(a).field(f).read(read).write(write).name(f.getName()).build();
 	}
 
-	private static PairValue<Object> fromMethod(Object instance, Method m, Annotation a)
-			throws IllegalAccessException, InvocationTargetException {
-		return PairValue.builder().annotation(a).read(m).name(m.getName()).value(m.invoke(instance)).build();
+	private static PairValue<Object> fromMethod(Method m, Annotation a) {
+		return PairValue.builder().annotation(a).read(m).name(m.getName()).build();
 	}
 
 	public static Object[] getKeys(Class<?> type, Object instance) {
-		PairValue<FileKey>[] keys = getValues(FileKey.class, type, instance);
-		Arrays.sort(keys, (a, b) -> a.getAnnotation().order() - b.getAnnotation().order());
+		PairValue<FileKey>[] keys = EntityModel.of(type).getKeys();
 		List<Object> path = new LinkedList<>();
-		Stream.of(keys).forEach(v -> {
-			Object value = v.getValue();
+		for (PairValue<FileKey> v : keys) {
+			Object value = v.get(instance);
 			if (value != null) {
 				Class<?> innerType = value.getClass();
-				FileAliasFor alias = AnnotationUtils.findAnnotation(innerType, FileAliasFor.class);
-				if (alias != null) {
+				if (EntityModel.of(innerType).isAlias()) {
 					Collections.addAll(path, getKeys(innerType, value));
 				} else {
 					path.add(value);
 				}
 			} else {
-				throw new FileStorageException("Invalid key path in " + Arrays.toString(keys), null);
+				throw new FileStorageException("Invalid key path in " + Arrays.toString(getValues(FileKey.class, type, instance)),
+						null);
 			}
-		});
+		}
 		log.info("keys: {}", path);
 		return path.toArray(new Object[0]);
 	}
@@ -103,8 +106,11 @@ public class UtilAnnotations {
 	}
 
 	public static Object[] getIds(Class<?> type, Object instance) {
-		PairValue<FileId>[] ids = UtilAnnotations.getValues(FileId.class, type, instance);
-		Object[] result = Stream.of(ids).map(PairValue::getValue).toArray();
+		PairValue<FileId>[] ids = EntityModel.of(type).getIds();
+		Object[] result = new Object[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			result[i] = ids[i].get(instance);
+		}
 		log.info("ids: {}", Arrays.toString(result));
 		return result;
 	}
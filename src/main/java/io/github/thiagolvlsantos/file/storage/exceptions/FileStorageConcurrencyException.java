@@ -0,0 +1,17 @@
+package io.github.thiagolvlsantos.file.storage.exceptions;
+
+import lombok.Getter;
+
+@SuppressWarnings("serial")
+@Getter
+public class FileStorageConcurrencyException extends FileStorageException {
+
+	private final long expected;
+	private final long actual;
+
+	public FileStorageConcurrencyException(Object keys, long expected, long actual) {
+		super("Revision conflict for " + keys + ": expected " + expected + ", found " + actual + ".", null);
+		this.expected = expected;
+		this.actual = actual;
+	}
+}
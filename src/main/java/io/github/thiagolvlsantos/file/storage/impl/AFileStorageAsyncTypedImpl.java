@@ -0,0 +1,165 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import io.github.thiagolvlsantos.file.storage.IFileStorageAsync;
+import io.github.thiagolvlsantos.file.storage.IFileStorageAsyncTyped;
+import io.github.thiagolvlsantos.file.storage.KeyParams;
+import io.github.thiagolvlsantos.file.storage.SearchParams;
+import io.github.thiagolvlsantos.file.storage.resource.Resource;
+import lombok.Setter;
+
+@Setter
+public abstract class AFileStorageAsyncTypedImpl<T> implements IFileStorageAsyncTyped<T> {
+
+	private Class<T> type;
+	private @Autowired IFileStorageAsync storage;
+
+	protected AFileStorageAsyncTypedImpl(Class<T> type) {
+		this.type = type;
+	}
+
+	@Override
+	public Class<T> type() {
+		return type;
+	}
+
+	// +------------- ENTITY METHODS ------------------+
+
+	@Override
+	public CompletableFuture<Boolean> exists(File dir, T example) {
+		return storage.exists(dir, type, example);
+	}
+
+	@Override
+	public CompletableFuture<Boolean> exists(File dir, KeyParams keys) {
+		return storage.exists(dir, type, keys);
+	}
+
+	@Override
+	public CompletableFuture<T> write(File dir, T instance) {
+		return storage.write(dir, type, instance);
+	}
+
+	@Override
+	public CompletableFuture<T> writeIfRevision(File dir, T instance, long expectedRevision) {
+		return storage.writeIfRevision(dir, type, instance, expectedRevision);
+	}
+
+	@Override
+	public CompletableFuture<List<T>> writeAll(File dir, Collection<T> instances) {
+		return storage.writeAll(dir, type, instances);
+	}
+
+	@Override
+	public CompletableFuture<T> read(File dir, T example) {
+		return storage.read(dir, type, example);
+	}
+
+	@Override
+	public CompletableFuture<T> read(File dir, KeyParams keys) {
+		return storage.read(dir, type, keys);
+	}
+
+	@Override
+	public CompletableFuture<List<T>> readAll(File dir, Collection<KeyParams> keys) {
+		return storage.readAll(dir, type, keys);
+	}
+
+	@Override
+	public CompletableFuture<T> delete(File dir, T example) {
+		return storage.delete(dir, type, example);
+	}
+
+	@Override
+	public CompletableFuture<T> delete(File dir, KeyParams keys) {
+		return storage.delete(dir, type, keys);
+	}
+
+	@Override
+	public CompletableFuture<Long> count(File dir, SearchParams search) {
+		return storage.count(dir, type, search);
+	}
+
+	@Override
+	public CompletableFuture<List<T>> list(File dir, SearchParams search) {
+		return storage.list(dir, type, search);
+	}
+
+	@Override
+	public Publisher<T> publish(File dir, SearchParams search) {
+		return storage.publish(dir, type, search);
+	}
+
+	// +------------- PROPERTY METHODS ------------------+
+
+	@Override
+	public CompletableFuture<T> setProperty(File dir, KeyParams keys, String property, Object data) {
+		return storage.setProperty(dir, type, keys, property, data);
+	}
+
+	@Override
+	public CompletableFuture<List<T>> setProperty(File dir, String property, Object data, SearchParams search) {
+		return storage.setProperty(dir, type, property, data, search);
+	}
+
+	@Override
+	public CompletableFuture<Object> getProperty(File dir, KeyParams keys, String property) {
+		return storage.getProperty(dir, type, keys, property);
+	}
+
+	@Override
+	public CompletableFuture<Map<String, Object>> properties(File dir, KeyParams keys, KeyParams names) {
+		return storage.properties(dir, type, keys, names);
+	}
+
+	@Override
+	public CompletableFuture<Map<String, Map<String, Object>>> properties(File dir, KeyParams names,
+			SearchParams search) {
+		return storage.properties(dir, type, names, search);
+	}
+
+	// +------------- RESOURCE METHODS ------------------+
+
+	@Override
+	public CompletableFuture<Boolean> existsResource(File dir, KeyParams keys, String path) {
+		return storage.existsResource(dir, type, keys, path);
+	}
+
+	@Override
+	public CompletableFuture<T> setResource(File dir, KeyParams keys, Resource resource) {
+		return storage.setResource(dir, type, keys, resource);
+	}
+
+	@Override
+	public CompletableFuture<Resource> getResource(File dir, KeyParams keys, String path) {
+		return storage.getResource(dir, type, keys, path);
+	}
+
+	@Override
+	public CompletableFuture<T> deleteResource(File dir, KeyParams keys, String path) {
+		return storage.deleteResource(dir, type, keys, path);
+	}
+
+	@Override
+	public CompletableFuture<Long> countResources(File dir, KeyParams keys, SearchParams search) {
+		return storage.countResources(dir, type, keys, search);
+	}
+
+	@Override
+	public CompletableFuture<List<Resource>> listResources(File dir, KeyParams keys, SearchParams search) {
+		return storage.listResources(dir, type, keys, search);
+	}
+
+	@Override
+	public Publisher<Resource> publishResources(File dir, KeyParams keys, SearchParams search) {
+		return storage.publishResources(dir, type, keys, search);
+	}
+}
@@ -1,8 +1,10 @@
 package io.github.thiagolvlsantos.file.storage.impl;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -66,6 +68,16 @@ public abstract class AFileStorageTypedImpl<T> implements IFileStorageTyped<T> {
 		return storage.write(dir, type, instance);
 	}
 
+	@Override
+	public T writeIfRevision(File dir, T instance, long expectedRevision) {
+		return storage.writeIfRevision(dir, type, instance, expectedRevision);
+	}
+
+	@Override
+	public List<T> writeAll(File dir, Collection<T> instances) {
+		return storage.writeAll(dir, type, instances);
+	}
+
 	@Override
 	public T read(File dir, T example) {
 		return storage.read(dir, type, example);
@@ -76,6 +88,11 @@ public abstract class AFileStorageTypedImpl<T> implements IFileStorageTyped<T> {
 		return storage.read(dir, type, keys);
 	}
 
+	@Override
+	public List<T> readAll(File dir, Collection<KeyParams> keys) {
+		return storage.readAll(dir, type, keys);
+	}
+
 	@Override
 	public T delete(File dir, T example) {
 		return storage.delete(dir, type, example);
@@ -96,6 +113,11 @@ public abstract class AFileStorageTypedImpl<T> implements IFileStorageTyped<T> {
 		return storage.list(dir, type, search);
 	}
 
+	@Override
+	public Stream<T> stream(File dir, SearchParams search) {
+		return storage.stream(dir, type, search);
+	}
+
 	// +------------- PROPERTY METHODS ------------------+
 
 	@Override
@@ -158,4 +180,9 @@ public abstract class AFileStorageTypedImpl<T> implements IFileStorageTyped<T> {
 	public List<Resource> listResources(File dir, KeyParams keys, SearchParams search) {
 		return storage.listResources(dir, type, keys, search);
 	}
+
+	@Override
+	public Stream<Resource> streamResources(File dir, KeyParams keys, SearchParams search) {
+		return storage.streamResources(dir, type, keys, search);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,228 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.github.thiagolvlsantos.file.storage.IFileWriter;
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+
+/**
+ * Append-only log of JSON lines backing an in-memory index. Only what was
+ * appended since the last read is replayed, including appends from other
+ * instances. Each file starts with a header holding a random generation,
+ * created with the file and renewed by snapshots, so a log replaced elsewhere
+ * (a compaction by another instance or process) replays from the start even
+ * when it has grown past what was already read. Appends and snapshots hold
+ * an exclusive lock on '&lt;name&gt;.lock', and snapshots replay the log
+ * under it first, so no append of another instance is lost by a compaction.
+ * Snapshots are written through the {@link IFileWriter}. Not thread safe,
+ * owners synchronize.
+ */
+class FileAppendLog {
+
+	interface Replay {
+		void reset();
+
+		void apply(JsonNode line);
+	}
+
+	private interface Locked {
+		void run() throws IOException;
+	}
+
+	private static final String GENERATION = "generation";
+	static final String LOCK = ".lock";
+	private static final int HEADER_MAX = 128;
+
+	// file locks are held by the JVM, instances sharing a log take turns
+	private static final Map<File, Object> LOCKS = new ConcurrentHashMap<>();
+
+	private final File file;
+	private final ObjectMapper mapper;
+	private final IFileWriter writer;
+	private final Replay replay;
+	private long position;
+	private long entries;
+	// identity of the file last read
+	private String generation;
+	private Object key;
+	private FileTime modified;
+
+	FileAppendLog(File file, ObjectMapper mapper, IFileWriter writer, Replay replay) {
+		this.file = file;
+		this.mapper = mapper;
+		this.writer = writer;
+		this.replay = replay;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	boolean exists() {
+		return file.exists();
+	}
+
+	/**
+	 * @return lines replayed since the last reset, obsolete ones included.
+	 */
+	long getEntries() {
+		return entries;
+	}
+
+	void append(Collection<? extends JsonNode> lines) {
+		if (lines.isEmpty()) {
+			return;
+		}
+		locked("Could not update index: ", () -> {
+			try {
+				Files.write(file.toPath(), header(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			} catch (FileAlreadyExistsException e) {
+				// created before, or by another instance
+			}
+			Files.write(file.toPath(), text(lines), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		});
+		sync();
+	}
+
+	/**
+	 * Replace the log by the lines given once everything appended, here or by
+	 * other instances, is replayed; kept as is when they are null.
+	 */
+	void snapshot(Supplier<? extends Collection<? extends JsonNode>> lines) {
+		locked("Could not write index: ", () -> {
+			sync();
+			Collection<? extends JsonNode> current = lines.get();
+			if (current == null) {
+				return;
+			}
+			byte[] header = header();
+			byte[] text = text(current);
+			byte[] data = Arrays.copyOf(header, header.length + text.length);
+			System.arraycopy(text, 0, data, header.length, text.length);
+			writer.write(file, data);
+			reset();
+			sync();
+		});
+	}
+
+	private void locked(String error, Locked action) {
+		prepare();
+		File lock = new File(file.getParentFile(), file.getName() + LOCK);
+		synchronized (LOCKS.computeIfAbsent(file.getAbsoluteFile(), k -> new Object())) {
+			try (FileChannel channel = FileChannel.open(lock.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE); FileLock hold = channel.lock()) {
+				action.run();
+			} catch (IOException e) {
+				throw new FileStorageException(error + file, e);
+			}
+		}
+	}
+
+	void sync() {
+		BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		} catch (NoSuchFileException e) {
+			if (position > 0) {
+				reset();
+			}
+			return;
+		} catch (IOException e) {
+			throw new FileStorageException("Could not read index: " + file, e);
+		}
+		long length = attributes.size();
+		if (length == position && Objects.equals(key, attributes.fileKey())
+				&& Objects.equals(modified, attributes.lastModifiedTime())) {
+			return;
+		}
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			byte[] head = new byte[(int) Math.min(HEADER_MAX, length)];
+			raf.readFully(head);
+			int skip = 0;
+			String current = null;
+			if (head.length > 0 && head[0] == '{') {
+				for (int i = 0; i < head.length && skip == 0; i++) {
+					if (head[i] == '\n') {
+						current = mapper.readTree(new String(head, 0, i, StandardCharsets.UTF_8)).path(GENERATION)
+								.asText(null);
+						skip = i + 1;
+					}
+				}
+			}
+			// replaced, or shorter than already read by a file without header
+			if (position > 0 && (!Objects.equals(generation, current) || length < position)) {
+				reset();
+			}
+			generation = current;
+			key = attributes.fileKey();
+			modified = attributes.lastModifiedTime();
+			position = Math.max(position, skip);
+			if (length <= position) {
+				return;
+			}
+			raf.seek(position);
+			byte[] tail = new byte[(int) (length - position)];
+			raf.readFully(tail);
+			int start = 0;
+			for (int i = 0; i < tail.length; i++) {
+				if (tail[i] == '\n') {
+					replay.apply(mapper.readTree(new String(tail, start, i - start, StandardCharsets.UTF_8)));
+					entries++;
+					start = i + 1;
+				}
+			}
+			position += start;
+		} catch (IOException e) {
+			throw new FileStorageException("Could not read index: " + file, e);
+		}
+	}
+
+	private byte[] header() throws IOException {
+		ObjectNode header = mapper.createObjectNode().put(GENERATION, UUID.randomUUID().toString());
+		return (mapper.writeValueAsString(header) + "\n").getBytes(StandardCharsets.UTF_8);
+	}
+
+	private byte[] text(Collection<? extends JsonNode> lines) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (JsonNode line : lines) {
+			sb.append(mapper.writeValueAsString(line)).append('\n');
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private void prepare() {
+		File parent = file.getParentFile();
+		if (!parent.exists() && !parent.mkdirs()) {
+			throw new FileStorageException("Could not create index directory: " + parent, null);
+		}
+	}
+
+	private void reset() {
+		replay.reset();
+		position = 0;
+		entries = 0;
+		generation = null;
+	}
+}
@@ -0,0 +1,182 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.github.thiagolvlsantos.file.storage.IFileExecutor;
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Splits items in contiguous chunks run by a fixed pool, the caller thread
+ * runs the first chunk. <code>file.storage.parallelism</code> sets the number
+ * of threads (default available processors, 1 means sequential) and
+ * <code>file.storage.parallelism.chunk</code> the least items per chunk.
+ * Calls made from pool threads run sequentially, so nested use cannot
+ * starve the pool.
+ * <p>
+ * With <code>file.storage.parallelism.virtual=true</code> on JDK 21+ each item
+ * gets its own virtual thread, up to
+ * <code>file.storage.parallelism.virtual.max</code> (default 256) per call,
+ * and nested calls run in parallel too. Older JDKs fall back to the pool.
+ */
+@Component
+@Slf4j
+public class FileExecutorImpl implements IFileExecutor {
+
+	private static final ThreadLocal<Boolean> WORKER = ThreadLocal.withInitial(() -> false);
+
+	// Executors.newVirtualThreadPerTaskExecutor() is only present on JDK 21+
+	private static final Method VIRTUAL_THREADS;
+	static {
+		Method method = null;
+		try {
+			method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException | RuntimeException e) {
+			// older JDK
+		}
+		VIRTUAL_THREADS = method;
+	}
+
+	private @Value("${file.storage.parallelism:0}") int parallelism;
+	private @Value("${file.storage.parallelism.chunk:16}") int chunk = 16;
+	private @Value("${file.storage.parallelism.virtual:false}") boolean virtual;
+	private @Value("${file.storage.parallelism.virtual.max:256}") int virtualMax = 256;
+
+	private ExecutorService pool;
+
+	/**
+	 * An executor starting a virtual thread per task, <code>null</code> when
+	 * the JDK has none.
+	 */
+	static ExecutorService virtualThreads() {
+		try {
+			return VIRTUAL_THREADS != null ? (ExecutorService) VIRTUAL_THREADS.invoke(null) : null;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public boolean isVirtual() {
+		return virtual && VIRTUAL_THREADS != null;
+	}
+
+	@Override
+	public int getParallelism() {
+		if (isVirtual()) {
+			return Math.max(1, virtualMax);
+		}
+		return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+	}
+
+	@Override
+	public <T, R> List<R> map(List<T> items, Function<? super T, ? extends R> function) {
+		int size = items.size();
+		int least = isVirtual() ? 1 : Math.max(1, chunk);
+		int chunks = Math.min(getParallelism(), (size + least - 1) / least);
+		if (chunks <= 1 || (WORKER.get() && !isVirtual())) {
+			List<R> result = new ArrayList<>(size);
+			for (T item : items) {
+				result.add(function.apply(item));
+			}
+			return result;
+		}
+		Object[] result = new Object[size];
+		List<Future<?>> futures = new ArrayList<>(chunks - 1);
+		for (int c = 1; c < chunks; c++) {
+			int from = (int) ((long) size * c / chunks);
+			int to = (int) ((long) size * (c + 1) / chunks);
+			futures.add(pool().submit(() -> apply(items, function, result, from, to)));
+		}
+		try {
+			apply(items, function, result, 0, size / chunks);
+		} catch (RuntimeException | Error e) {
+			// wait for the others anyway, keeping the caller failure first
+			try {
+				join(futures);
+			} catch (RuntimeException other) {
+				e.addSuppressed(other);
+			}
+			throw e;
+		}
+		join(futures);
+		@SuppressWarnings("unchecked")
+		List<R> list = (List<R>) Arrays.asList(result);
+		return list;
+	}
+
+	private <T, R> void apply(List<T> items, Function<? super T, ? extends R> function, Object[] result, int from,
+			int to) {
+		for (int i = from; i < to; i++) {
+			result[i] = function.apply(items.get(i));
+		}
+	}
+
+	private void join(List<Future<?>> futures) {
+		RuntimeException error = null;
+		for (Future<?> f : futures) {
+			try {
+				f.get();
+			} catch (ExecutionException e) {
+				RuntimeException cause = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+						: new FileStorageException(e.getCause().getMessage(), e.getCause());
+				if (error == null) {
+					error = cause;
+				} else if (error != cause) {
+					error.addSuppressed(cause);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new FileStorageException("Interrupted while waiting for tasks.", e);
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	private synchronized ExecutorService pool() {
+		if (pool == null && isVirtual()) {
+			pool = virtualThreads();
+			log.info("Executor started, virtual threads, parallelism={}", getParallelism());
+		}
+		if (pool == null) {
+			if (virtual) {
+				log.warn("Virtual threads not available, using a pool.");
+			}
+			AtomicInteger count = new AtomicInteger();
+			pool = Executors.newFixedThreadPool(getParallelism() - 1, r -> {
+				Thread t = new Thread(() -> {
+					WORKER.set(true);
+					r.run();
+				}, "file-storage-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+			log.info("Executor started, parallelism={}", getParallelism());
+		}
+		return pool;
+	}
+
+	@PreDestroy
+	public synchronized void shutdown() {
+		if (pool != null) {
+			pool.shutdownNow();
+			pool = null;
+		}
+	}
+}
@@ -0,0 +1,433 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.CRC32;
+
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+import io.github.thiagolvlsantos.git.commons.file.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Group commit through a redo journal. Callers queue what they changed (the
+ * content of a file still in its temporary file, a delete already done, or
+ * directories created) and wait; a single thread takes everything queued,
+ * optionally waiting a little for more, appends it to the journal, forces the
+ * journal once for the whole batch and releases all those callers together,
+ * writers then move their temporary files over the targets. Concurrent
+ * writers of any files share one flush instead of paying for their files and
+ * directories each.
+ * <p>
+ * Files changed since the last checkpoint are forced, and the journal
+ * emptied, once it grows past the checkpoint size and on stop; a checkpoint
+ * waits for the journaled files still being moved. A journal left by a crash
+ * is replayed on start. The journal is locked while in use, so it cannot be
+ * shared by writers.
+ */
+@Slf4j
+class FileFlusher {
+
+	private static final byte WRITE = 'W';
+	private static final byte DELETE = 'D';
+	private static final byte MKDIR = 'M';
+
+	private final FileWriterImpl writer;
+	private final File journal;
+	private final long wait;
+	private final int batch;
+	private final long checkpoint;
+	private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+	// files and directories to force on checkpoint
+	private final Set<File> changed = new LinkedHashSet<>();
+	private final FileChannel channel;
+	private final Thread thread;
+	private volatile boolean running = true;
+	private long size;
+	// journaled writes not moved yet
+	private int moving;
+
+	FileFlusher(FileWriterImpl writer, File journal, long waitMicros, int batch, long checkpoint) {
+		this.writer = writer;
+		this.journal = journal.getAbsoluteFile();
+		this.wait = waitMicros;
+		this.batch = Math.max(1, batch);
+		this.checkpoint = checkpoint;
+		this.channel = open(this.journal);
+		try {
+			recover();
+		} catch (IOException | RuntimeException | InterruptedException e) {
+			close();
+			throw new FileStorageException("Could not replay journal: " + this.journal, e);
+		}
+		this.thread = new Thread(this::run, "file-storage-flusher");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private static FileChannel open(File journal) {
+		File parent = journal.getParentFile();
+		if (!parent.mkdirs() && !parent.isDirectory()) {
+			throw new FileStorageException("Could not create journal directory: " + parent, null);
+		}
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(journal.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			FileLock lock;
+			try {
+				lock = channel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				lock = null;
+			}
+			if (lock == null) {
+				throw new FileStorageException("Journal in use by another writer: " + journal, null);
+			}
+			return channel;
+		} catch (IOException | RuntimeException e) {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException ex) {
+					e.addSuppressed(ex);
+				}
+			}
+			throw e instanceof FileStorageException ? (FileStorageException) e
+					: new FileStorageException("Could not open journal: " + journal, e);
+		}
+	}
+
+	/**
+	 * Block until the content is in the journal, then move the temporary file
+	 * over the target.
+	 */
+	void write(File temporary, File target, byte[] data) throws IOException {
+		Request request = new Request(WRITE, target.getAbsoluteFile(), data);
+		try {
+			await(Collections.singletonList(request));
+			writer.move(temporary, target);
+		} finally {
+			// also when the caller gave up waiting
+			request.done.thenRun(this::moved);
+		}
+	}
+
+	private synchronized void moving() {
+		moving++;
+	}
+
+	private synchronized void moved() {
+		if (--moving == 0) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Block until the removal is in the journal.
+	 */
+	void delete(File file) {
+		await(Collections.singletonList(new Request(DELETE, file.getAbsoluteFile(), null)));
+	}
+
+	/**
+	 * Block until the directories created are in the journal.
+	 */
+	void mkdirs(Collection<File> dirs) {
+		List<Request> requests = new ArrayList<>(dirs.size());
+		for (File d : dirs) {
+			requests.add(new Request(MKDIR, d.getAbsoluteFile(), null));
+		}
+		await(requests);
+	}
+
+	private void await(List<Request> requests) {
+		if (!running) {
+			throw new FileStorageException("Flusher stopped.", null);
+		}
+		List<CompletableFuture<Void>> futures = new ArrayList<>(requests.size());
+		for (Request r : requests) {
+			queue.add(r);
+			futures.add(r.done);
+		}
+		CompletableFuture<Void> all = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+		try {
+			while (!await(all)) {
+				if (!running) {
+					throw new FileStorageException("Flusher stopped.", null);
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			throw cause instanceof RuntimeException ? (RuntimeException) cause
+					: new FileStorageException("Could not sync files: " + requests, cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FileStorageException("Interrupted while syncing files: " + requests, e);
+		}
+	}
+
+	private boolean await(CompletableFuture<Void> future) throws InterruptedException, ExecutionException {
+		try {
+			future.get(100, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Fail what is queued, checkpoint and release the journal.
+	 */
+	void stop() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		thread.interrupt();
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(10));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		List<Request> pending = new ArrayList<>();
+		queue.drainTo(pending);
+		FileStorageException error = new FileStorageException("Flusher stopped.", null);
+		pending.forEach(r -> r.done.completeExceptionally(error));
+		try {
+			checkpoint();
+		} catch (IOException | RuntimeException e) {
+			log.warn("Could not checkpoint journal: {}", journal, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("Interrupted, journal not checkpointed: {}", journal);
+		} finally {
+			close();
+		}
+	}
+
+	private void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			log.warn("Could not close journal: {}", journal, e);
+		}
+	}
+
+	private void run() {
+		List<Request> requests = new ArrayList<>();
+		while (running) {
+			try {
+				requests.add(queue.take());
+				if (wait > 0 && queue.size() < batch) {
+					TimeUnit.MICROSECONDS.sleep(wait);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				requests.forEach(r -> r.done.completeExceptionally(new FileStorageException("Flusher stopped.", e)));
+				return;
+			}
+			queue.drainTo(requests);
+			commit(requests);
+			requests.clear();
+		}
+	}
+
+	private void commit(List<Request> requests) {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			for (Request r : requests) {
+				r.encode(out);
+			}
+			write(ByteBuffer.wrap(out.toByteArray()), size);
+			// the size is flushed too, it is needed to read the records back
+			writer.force(channel, false);
+			size += out.size();
+		} catch (IOException | RuntimeException e) {
+			FileStorageException error = new FileStorageException("Could not write journal: " + journal, e);
+			requests.forEach(r -> r.done.completeExceptionally(error));
+			discard();
+			return;
+		}
+		for (Request r : requests) {
+			if (r.type == WRITE) {
+				changed.add(r.file);
+				moving();
+			}
+			changed.add(r.file.getParentFile());
+			r.done.complete(null);
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Journal flushed once for {} requests.", requests.size());
+		}
+		if (size > checkpoint) {
+			try {
+				checkpoint();
+			} catch (IOException | RuntimeException e) {
+				log.warn("Could not checkpoint journal: {}", journal, e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void write(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	// records of a failed batch must not be replayed
+	private void discard() {
+		try {
+			channel.truncate(size);
+		} catch (IOException e) {
+			log.warn("Could not truncate journal: {}", journal, e);
+		}
+	}
+
+	private void checkpoint() throws IOException, InterruptedException {
+		synchronized (this) {
+			while (moving > 0) {
+				wait();
+			}
+		}
+		for (File f : changed) {
+			if (f.exists()) {
+				writer.force(f);
+			}
+		}
+		changed.clear();
+		channel.truncate(0);
+		writer.force(channel, true);
+		size = 0;
+	}
+
+	private void recover() throws IOException, InterruptedException {
+		long length = channel.size();
+		if (length == 0) {
+			return;
+		}
+		if (length > Integer.MAX_VALUE - 8) {
+			throw new IOException("Journal too large: " + length);
+		}
+		ByteBuffer buffer = ByteBuffer.allocate((int) length);
+		while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+			// until full
+		}
+		int count = 0;
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array(), 0, buffer.position()));
+		// a torn or corrupt record ends the journal
+		while (in.available() >= Integer.BYTES) {
+			int n = in.readInt();
+			if (n <= 0 || in.available() < n + Long.BYTES) {
+				break;
+			}
+			byte[] record = new byte[n];
+			in.readFully(record);
+			CRC32 crc = new CRC32();
+			crc.update(record, 0, n);
+			if (crc.getValue() != in.readLong()) {
+				break;
+			}
+			redo(record);
+			count++;
+		}
+		log.warn("Journal replayed: {}, records={}", journal, count);
+		checkpoint();
+	}
+
+	private void redo(byte[] record) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+		byte type = in.readByte();
+		File file = new File(in.readUTF());
+		switch (type) {
+		case WRITE:
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			File parent = file.getParentFile();
+			if (!parent.mkdirs() && !parent.isDirectory()) {
+				throw new IOException("Could not create directory: " + parent);
+			}
+			File tmp = writer.temporary(file);
+			try {
+				Files.write(tmp.toPath(), data);
+				writer.move(tmp, file);
+			} finally {
+				Files.deleteIfExists(tmp.toPath());
+			}
+			changed.add(parent);
+			changed.add(file);
+			break;
+		case DELETE:
+			if (file.exists()) {
+				FileUtils.delete(file);
+			}
+			changed.add(file.getParentFile());
+			break;
+		case MKDIR:
+			if (!file.mkdirs() && !file.isDirectory()) {
+				throw new IOException("Could not create directory: " + file);
+			}
+			changed.add(file.getParentFile());
+			break;
+		default:
+			throw new IOException("Invalid journal record: " + type);
+		}
+	}
+
+	private static class Request {
+		private final byte type;
+		private final File file;
+		private final byte[] data;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		Request(byte type, File file, byte[] data) {
+			this.type = type;
+			this.file = file;
+			this.data = data;
+		}
+
+		@Override
+		public String toString() {
+			return file.getPath();
+		}
+
+		void encode(ByteArrayOutputStream out) throws IOException {
+			ByteArrayOutputStream record = new ByteArrayOutputStream();
+			DataOutputStream body = new DataOutputStream(record);
+			body.writeByte(type);
+			body.writeUTF(file.getPath());
+			if (type == WRITE) {
+				body.writeInt(data.length);
+				body.write(data);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(record.toByteArray(), 0, record.size());
+			DataOutputStream o = new DataOutputStream(out);
+			o.writeInt(record.size());
+			record.writeTo(o);
+			o.writeLong(crc.getValue());
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hi/lo id allocator of one type in one repository. The counter file keeps
+ * the highest id reserved, blocks of ids are reserved with a single write and
+ * then handed out from memory without locking. Ids reserved but not used
+ * before a restart are skipped.
+ *
+ * When shared, reservations hold a {@link FileLock} on the counter file so
+ * processes using the same volume never receive the same block.
+ */
+@Slf4j
+class FileIdAllocator {
+
+	// file locks are per process, threads of this process queue here
+	private static final Map<File, Object> LOCKS = new ConcurrentHashMap<>();
+
+	private final File file;
+	private final boolean shared;
+	private final AtomicLong counter = new AtomicLong();
+	private volatile long limit;
+
+	FileIdAllocator(File file, boolean shared) {
+		this.file = file;
+		this.shared = shared;
+	}
+
+	long next(int block, LongSupplier floor) {
+		while (true) {
+			long current = counter.get();
+			if (current < limit) {
+				if (counter.compareAndSet(current, current + 1)) {
+					return current + 1;
+				}
+			} else {
+				synchronized (this) {
+					if (counter.get() >= limit) {
+						reserve(Math.max(1, block), floor.getAsLong());
+					}
+				}
+			}
+		}
+	}
+
+	private void reserve(int block, long floor) {
+		long start;
+		if (shared) {
+			start = reserveLocked(block, floor);
+		} else {
+			start = Math.max(read(), floor);
+			write(start + block);
+		}
+		long end = start + block;
+		counter.set(start);
+		limit = end;
+		log.info("Ids reserved ({}, {}], in {}", start, end, file);
+	}
+
+	private long reserveLocked(int block, long floor) {
+		prepare();
+		synchronized (LOCKS.computeIfAbsent(file, f -> new Object())) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+				ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+					// until full
+				}
+				String text = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim();
+				long start = Math.max(text.isEmpty() ? 0L : Long.parseLong(text), floor);
+				channel.truncate(0);
+				channel.write(ByteBuffer.wrap(String.valueOf(start + block).getBytes(StandardCharsets.UTF_8)), 0);
+				channel.force(false);
+				return start;
+			} catch (IOException | NumberFormatException e) {
+				throw new FileStorageException("Could not reserve ids in counter: " + file, e);
+			}
+		}
+	}
+
+	private long read() {
+		try {
+			return file.exists() ? Long.parseLong(Files.readString(file.toPath()).trim()) : 0L;
+		} catch (IOException | NumberFormatException e) {
+			throw new FileStorageException("Could not read id counter: " + file, e);
+		}
+	}
+
+	private void write(long value) {
+		prepare();
+		try {
+			Files.write(file.toPath(), String.valueOf(value).getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException e) {
+			throw new FileStorageException("Could not write id counter: " + file, e);
+		}
+	}
+
+	private void prepare() {
+		File parent = file.getParentFile();
+		// another process may create it meanwhile
+		if (!parent.mkdirs() && !parent.isDirectory()) {
+			throw new FileStorageException("Could not create/recover index directory: " + parent, null);
+		}
+	}
+}
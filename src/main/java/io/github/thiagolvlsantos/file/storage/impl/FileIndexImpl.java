@@ -2,51 +2,90 @@ package io.github.thiagolvlsantos.file.storage.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import io.github.thiagolvlsantos.file.storage.IFileIndex;
+import io.github.thiagolvlsantos.file.storage.annotations.EntityModel;
 import io.github.thiagolvlsantos.file.storage.annotations.PairValue;
 import io.github.thiagolvlsantos.file.storage.annotations.UtilAnnotations;
-import io.github.thiagolvlsantos.file.storage.entity.FileName;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
 import io.github.thiagolvlsantos.file.storage.identity.FileId;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Index with one small file per object: '.index/.data.ids/&lt;ids&gt;' holding
+ * the keys and '.index/.data.keys/&lt;keys&gt;' holding the ids. Default
+ * <code>file.storage.index.mode=files</code>.
+ *
+ * Ids are allocated per repository and type, reserving
+ * <code>file.storage.index.block</code> ids for each write of the
+ * '.data.current' counter. With <code>file.storage.index.lock=process</code>
+ * each reservation locks the counter file, for instances sharing a volume.
+ */
 @Component
+@ConditionalOnProperty(name = "file.storage.index.mode", havingValue = "files", matchIfMissing = true)
 @Slf4j
 public class FileIndexImpl implements IFileIndex {
 
-	private Object lock = new Object();
+	public static final String LOCK_JVM = "jvm";
+	public static final String LOCK_PROCESS = "process";
+
+	private final Map<File, FileIdAllocator> allocators = new ConcurrentHashMap<>();
+
+	private @Value("${file.storage.index.block:1}") int block = 1;
+
+	private @Value("${file.storage.index.lock:" + LOCK_JVM + "}") String lock = LOCK_JVM;
 
 	@Override
-	@SneakyThrows
 	public Object next(File dir, Class<?> type, PairValue<FileId> info) {
+		Long current = allocator(dir, type).next(block, () -> floor(dir, type));
+		log.debug("Next id for '{}'={}", type, current);
+		return current;
+	}
+
+	@Override
+	public Object[] next(File dir, Class<?> type, PairValue<FileId> info, int count) {
+		FileIdAllocator allocator = allocator(dir, type);
+		// a refill reserves at least all remaining ids
+		Object[] result = new Object[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = allocator.next(Math.max(block, count - i), () -> floor(dir, type));
+		}
+		log.debug("Next ids for '{}'={}", type, Arrays.toString(result));
+		return result;
+	}
+
+	private FileIdAllocator allocator(File dir, Class<?> type) {
 		if (type == null) {
 			throw new FileStorageException("Invalid type 'null'.", null);
 		}
-		Long current = 0L;
-		synchronized (lock) {
-			File index = index(dir);
-			File file = new File(index, prefix(type) + ".current");
-			if (file.exists()) {
-				current = Long.valueOf(Files.readString(file.toPath()));
-			}
-			current = current + 1;
-			log.info("Next id for '{}'={}, in {}", type, current, file);
-			Files.write(file.toPath(), String.valueOf(current).getBytes(), StandardOpenOption.CREATE,
-					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
-		}
-		return current;
+		File file = new File(new File(dir, ".index"), prefix(type) + ".current").getAbsoluteFile();
+		return allocators.computeIfAbsent(file, f -> new FileIdAllocator(f, LOCK_PROCESS.equalsIgnoreCase(lock)));
 	}
 
-	private File index(File dir) {
+	/**
+	 * Lowest value the id counter may have, to never give an id already bound.
+	 */
+	protected long floor(File dir, Class<?> type) {
+		return 0L;
+	}
+
+	protected File index(File dir) {
 		File index = new File(dir, ".index");
 		if (!index.exists() && !index.mkdirs()) {
 			throw new FileStorageException("Could not create/recover index directory: " + index, null);
@@ -54,14 +93,8 @@ public class FileIndexImpl implements IFileIndex {
 		return index;
 	}
 
-	private String prefix(Class<?> type) {
-		if (type != null) {
-			FileName name = AnnotationUtils.findAnnotation(type, FileName.class);
-			if (name != null) {
-				return "." + name.value();
-			}
-		}
-		return ".data";
+	protected String prefix(Class<?> type) {
+		return "." + (type != null ? EntityModel.of(type).getFileName("data") : "data");
 	}
 
 	@Override
@@ -120,6 +153,37 @@ public class FileIndexImpl implements IFileIndex {
 		return new File(index(dir), prefix(type) + "." + kind);
 	}
 
+	@Override
+	@SneakyThrows
+	public Stream<Object[]> keys(File dir, Class<?> type) {
+		Path ids = directory(dir, type, IDS).toPath();
+		if (!Files.isDirectory(ids)) {
+			return Stream.empty();
+		}
+		DirectoryStream<Path> files = Files.newDirectoryStream(ids);
+		return StreamSupport.stream(files.spliterator(), false)//
+				.onClose(() -> close(files))//
+				.map(this::read)//
+				.filter(Objects::nonNull);
+	}
+
+	protected Object[] read(Path index) {
+		try {
+			return Files.readAllLines(index).toArray(new Object[0]);
+		} catch (Throwable e) {
+			log.error("Could not read index: " + index + ", check file system.", e);
+			return null;
+		}
+	}
+
+	private void close(DirectoryStream<Path> files) {
+		try {
+			files.close();
+		} catch (IOException e) {
+			throw new FileStorageException("Could not close index listing.", e);
+		}
+	}
+
 	private File ids(File dir, Class<?> type, Object... ids) {
 		return flatName(directory(dir, type, IDS), ids);
 	}
@@ -0,0 +1,320 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import io.github.thiagolvlsantos.file.storage.IFileWriter;
+import io.github.thiagolvlsantos.file.storage.annotations.UtilAnnotations;
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+import io.github.thiagolvlsantos.file.storage.util.collection.LongObjectMap;
+import io.github.thiagolvlsantos.git.commons.file.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index keeping id->keys mappings of a type in a single append-only segment,
+ * '.index/.data.segment', replayed into a map keyed by primitive
+ * <code>long</code> ids (ids that are not a single number use a text key).
+ * Listing keys touches no file per object and the segment is compacted when
+ * most of its lines are obsolete. Enabled with
+ * <code>file.storage.index.mode=segment</code>; the id counter is the same
+ * as {@link FileIndexImpl}.
+ *
+ * Repositories written with the file per object layout are migrated on first
+ * access, or explicitly with {@link #migrate(File, Class)}.
+ */
+@Component
+@ConditionalOnProperty(name = "file.storage.index.mode", havingValue = "segment")
+@Slf4j
+public class FileIndexSegmentImpl extends FileIndexImpl {
+
+	public static final String SEGMENT = "segment";
+
+	private static final String ADD = "+";
+	private static final String REMOVE = "-";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final Map<File, Segment> segments = new ConcurrentHashMap<>();
+
+	private @Autowired IFileWriter writer;
+	private @Value("${file.storage.index.compaction:10000}") long compaction = 10000;
+
+	@Override
+	public <T> void bind(File dir, T instance) {
+		if (instance == null) {
+			throw new FileStorageException("Invalid argument: null", null);
+		}
+		Class<? extends Object> clazz = instance.getClass();
+		segment(dir, clazz).bind(UtilAnnotations.getIds(clazz, instance), UtilAnnotations.getKeys(clazz, instance));
+	}
+
+	@Override
+	public <T> void bindAll(File dir, Collection<T> instances) {
+		Map<Class<?>, List<Object[][]>> groups = new LinkedHashMap<>();
+		for (T instance : instances) {
+			Class<? extends Object> clazz = instance.getClass();
+			groups.computeIfAbsent(clazz, k -> new ArrayList<>()).add(new Object[][] {
+					UtilAnnotations.getIds(clazz, instance), UtilAnnotations.getKeys(clazz, instance) });
+		}
+		groups.forEach((clazz, pairs) -> segment(dir, clazz).bindAll(pairs));
+	}
+
+	@Override
+	public <T> void unbind(File dir, T instance) {
+		Class<? extends Object> clazz = instance.getClass();
+		segment(dir, clazz).unbind(UtilAnnotations.getIds(clazz, instance));
+	}
+
+	@Override
+	public Stream<Object[]> keys(File dir, Class<?> type) {
+		return segment(dir, type).keys().stream();
+	}
+
+	@Override
+	protected long floor(File dir, Class<?> type) {
+		return segment(dir, type).getMaxId();
+	}
+
+	/**
+	 * Move the file per object index of a type into its segment. Mappings
+	 * already in the segment are kept, and the old index directories are
+	 * removed once the segment is written.
+	 *
+	 * @return number of mappings in the segment.
+	 */
+	public long migrate(File dir, Class<?> type) {
+		Segment segment = segment(dir, type);
+		synchronized (segment) {
+			segment.migrate(dir, type);
+			return segment.size();
+		}
+	}
+
+	private Segment segment(File dir, Class<?> type) {
+		File file = new File(index(dir), prefix(type) + "." + SEGMENT).getAbsoluteFile();
+		Segment segment = segments.computeIfAbsent(file, Segment::new);
+		synchronized (segment) {
+			if (!segment.isLoaded()) {
+				if (!segment.exists()) {
+					segment.migrate(dir, type);
+				}
+				segment.load();
+			}
+		}
+		return segment;
+	}
+
+	private class Segment implements FileAppendLog.Replay {
+		private final FileAppendLog journal;
+		private final LongObjectMap<Object[]> numbers = new LongObjectMap<>();
+		private final Map<String, Object[]> others = new LinkedHashMap<>();
+		private long maxId;
+		private boolean loaded;
+
+		Segment(File file) {
+			this.journal = new FileAppendLog(file, mapper, writer, this);
+		}
+
+		boolean exists() {
+			return journal.exists();
+		}
+
+		boolean isLoaded() {
+			return loaded;
+		}
+
+		void load() {
+			journal.sync();
+			loaded = true;
+			log.info("Segment loaded: {}, entries={}", journal.getFile(), size());
+		}
+
+		int size() {
+			return numbers.size() + others.size();
+		}
+
+		synchronized long getMaxId() {
+			journal.sync();
+			return maxId;
+		}
+
+		synchronized void bind(Object[] ids, Object[] keys) {
+			append(Collections.singletonList(line(id(ids), keys)));
+		}
+
+		synchronized void bindAll(List<Object[][]> pairs) {
+			List<JsonNode> lines = new ArrayList<>(pairs.size());
+			for (Object[][] p : pairs) {
+				lines.add(line(id(p[0]), p[1]));
+			}
+			append(lines);
+		}
+
+		synchronized void unbind(Object[] ids) {
+			ArrayNode line = mapper.createArrayNode().add(REMOVE);
+			line.add(id(ids));
+			append(Collections.singletonList(line));
+		}
+
+		synchronized List<Object[]> keys() {
+			sync();
+			List<Object[]> result = new ArrayList<>(size());
+			for (long id : numbers.keys()) {
+				result.add(numbers.get(id));
+			}
+			result.addAll(others.values());
+			return result;
+		}
+
+		void migrate(File dir, Class<?> type) {
+			Path legacy = directory(dir, type, IDS).toPath();
+			if (!Files.isDirectory(legacy)) {
+				return;
+			}
+			journal.snapshot(() -> {
+				List<JsonNode> lines = snapshot();
+				try (DirectoryStream<Path> files = Files.newDirectoryStream(legacy)) {
+					for (Path f : files) {
+						String name = f.getFileName().toString();
+						Long n = number(name);
+						if (n != null ? numbers.containsKey(n) : others.containsKey(name)) {
+							continue;
+						}
+						Object[] keys = read(f);
+						if (keys != null) {
+							lines.add(line(id(new Object[] { n != null ? n : name }), keys));
+						}
+					}
+				} catch (IOException e) {
+					throw new FileStorageException("Could not migrate index: " + legacy, e);
+				}
+				return lines;
+			});
+			try {
+				FileUtils.delete(legacy.toFile());
+				File keys = directory(dir, type, KEYS);
+				if (keys.exists()) {
+					FileUtils.delete(keys);
+				}
+			} catch (IOException e) {
+				throw new FileStorageException("Could not remove migrated index: " + legacy, e);
+			}
+			log.info("Index migrated: {} -> {}, entries={}", legacy, journal.getFile(), size());
+		}
+
+		private void append(List<JsonNode> lines) {
+			journal.append(lines);
+			compact();
+		}
+
+		private void sync() {
+			journal.sync();
+			compact();
+		}
+
+		// a single integral id is stored as a number, anything else as text
+		private JsonNode id(Object[] ids) {
+			if (ids.length == 1 && (ids[0] instanceof Long || ids[0] instanceof Integer || ids[0] instanceof Short)) {
+				return mapper.getNodeFactory().numberNode(((Number) ids[0]).longValue());
+			}
+			return mapper.getNodeFactory()
+					.textNode(Stream.of(ids).map(String::valueOf).collect(Collectors.joining("_")));
+		}
+
+		private Long number(String name) {
+			try {
+				return Long.valueOf(name);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public void apply(JsonNode line) {
+			JsonNode id = line.get(1);
+			boolean add = ADD.equals(line.get(0).asText());
+			if (id.isIntegralNumber()) {
+				long n = id.asLong();
+				if (add) {
+					numbers.put(n, keys(line.get(2)));
+					maxId = Math.max(maxId, n);
+				} else {
+					numbers.remove(n);
+				}
+			} else if (add) {
+				others.put(id.asText(), keys(line.get(2)));
+			} else {
+				others.remove(id.asText());
+			}
+		}
+
+		private Object[] keys(JsonNode array) {
+			Object[] keys = new Object[array.size()];
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = array.get(i).asText();
+			}
+			return keys;
+		}
+
+		private void compact() {
+			if (obsolete()) {
+				log.info("Compacting segment: {}, entries={}, live={}", journal.getFile(), journal.getEntries(),
+						size());
+				// another instance may have compacted meanwhile
+				journal.snapshot(() -> obsolete() ? snapshot() : null);
+			}
+		}
+
+		private boolean obsolete() {
+			long entries = journal.getEntries();
+			return entries > compaction && entries > 2L * size();
+		}
+
+		private List<JsonNode> snapshot() {
+			List<JsonNode> lines = new ArrayList<>(size());
+			for (long id : numbers.keys()) {
+				lines.add(line(mapper.getNodeFactory().numberNode(id), numbers.get(id)));
+			}
+			others.forEach((id, keys) -> lines.add(line(mapper.getNodeFactory().textNode(id), keys)));
+			return lines;
+		}
+
+		private JsonNode line(JsonNode id, Object[] keys) {
+			ArrayNode line = mapper.createArrayNode().add(ADD);
+			line.add(id);
+			ArrayNode array = line.addArray();
+			for (Object k : keys) {
+				array.add(String.valueOf(k));
+			}
+			return line;
+		}
+
+		@Override
+		public void reset() {
+			numbers.clear();
+			others.clear();
+			maxId = 0;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.github.thiagolvlsantos.file.storage.IFileLocks;
+
+/**
+ * Locks striped over <code>file.storage.locks.stripes</code> (default 1024,
+ * rounded up to a power of two) {@link ReentrantReadWriteLock}s chosen by the
+ * object directory hash. Objects sharing a stripe also share its lock, which
+ * keeps memory fixed whatever the number of objects; several write locks are
+ * taken in stripe order so they cannot deadlock.
+ */
+@Component
+public class FileLocksImpl implements IFileLocks {
+
+	private @Value("${file.storage.locks.stripes:1024}") int stripes = 1024;
+
+	private ReentrantReadWriteLock[] locks;
+
+	@PostConstruct
+	public void configure() {
+		int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+		locks = new ReentrantReadWriteLock[stripes <= 1 ? 1 : size];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new ReentrantReadWriteLock();
+		}
+	}
+
+	@Override
+	public Hold read(File entity) {
+		return hold(locks[stripe(entity)].readLock());
+	}
+
+	@Override
+	public Hold write(File entity) {
+		return hold(locks[stripe(entity)].writeLock());
+	}
+
+	@Override
+	public Hold write(Collection<File> entities) {
+		TreeSet<Integer> indexes = new TreeSet<>();
+		for (File f : entities) {
+			indexes.add(stripe(f));
+		}
+		Lock[] held = new Lock[indexes.size()];
+		int count = 0;
+		try {
+			for (int i : indexes) {
+				Lock lock = locks[i].writeLock();
+				lock.lock();
+				held[count++] = lock;
+			}
+		} catch (RuntimeException | Error e) {
+			release(held, count);
+			throw e;
+		}
+		return new Held(held);
+	}
+
+	private Hold hold(Lock lock) {
+		lock.lock();
+		return new Held(new Lock[] { lock });
+	}
+
+	private static void release(Lock[] held, int count) {
+		for (int i = count - 1; i >= 0; i--) {
+			held[i].unlock();
+		}
+	}
+
+	private int stripe(File entity) {
+		int h = entity.getAbsolutePath().hashCode();
+		return (h ^ (h >>> 16)) & (locks.length - 1);
+	}
+
+	// released once, further closes are ignored
+	private static class Held implements Hold {
+		private Lock[] locks;
+
+		Held(Lock[] locks) {
+			this.locks = locks;
+		}
+
+		@Override
+		public void close() {
+			if (locks != null) {
+				release(locks, locks.length);
+				locks = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,289 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import io.github.thiagolvlsantos.file.storage.IFilePropertyIndex;
+import io.github.thiagolvlsantos.file.storage.IFileWriter;
+import io.github.thiagolvlsantos.file.storage.annotations.EntityModel;
+import io.github.thiagolvlsantos.file.storage.annotations.PairValue;
+import io.github.thiagolvlsantos.file.storage.annotations.UtilAnnotations;
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+import io.github.thiagolvlsantos.file.storage.search.FileCondition;
+import io.github.thiagolvlsantos.file.storage.search.FileIndexed;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indexes of {@link FileIndexed} properties, one append-only log per property
+ * in the repository '.index' directory. Each log is replayed into a sorted
+ * value->keys map, and re-read incrementally when it grows, so appends from
+ * other instances are also seen. Logs are compacted when most entries are
+ * obsolete; a log compacted by another instance is replayed again from the
+ * start (see {@link FileAppendLog}).
+ */
+@Component
+@Slf4j
+public class FilePropertyIndexImpl implements IFilePropertyIndex {
+
+	private static final String ADD = "+";
+	private static final String REMOVE = "-";
+	private static final String SEPARATOR = "\n";
+
+	private final ObjectMapper mapper = new ObjectMapper()//
+			.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)//
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)//
+			.registerModule(new JavaTimeModule());
+
+	private final Map<File, PropertyIndex> indexes = new ConcurrentHashMap<>();
+
+	private @Autowired IFileWriter writer;
+	private @Value("${file.storage.indexed.compaction:10000}") long compaction = 10000;
+
+	@Override
+	public boolean isIndexed(Class<?> type, String property) {
+		return property(type, property) != null;
+	}
+
+	private PairValue<FileIndexed> property(Class<?> type, String property) {
+		for (PairValue<FileIndexed> p : EntityModel.of(type).getIndexed()) {
+			if (p.getName().equals(property)) {
+				return p;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public <T> boolean isStale(File dir, Class<T> type) {
+		for (PairValue<FileIndexed> p : EntityModel.of(type).getIndexed()) {
+			if (!file(dir, type, p).exists()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public <T> void rebuild(File dir, Class<T> type, Stream<T> all) {
+		PairValue<FileIndexed>[] properties = EntityModel.of(type).getIndexed();
+		List<Map<String, Object>> snapshots = Stream.of(properties).map(p -> new LinkedHashMap<String, Object>())
+				.collect(Collectors.toList());
+		all.forEach(instance -> {
+			String keys = keys(type, instance);
+			for (int i = 0; i < properties.length; i++) {
+				snapshots.get(i).put(keys, properties[i].get(instance));
+			}
+		});
+		for (int i = 0; i < properties.length; i++) {
+			File file = file(dir, type, properties[i]);
+			index(file, properties[i]).snapshot(snapshots.get(i));
+			log.info("Index rebuilt: {}, entries={}", file, snapshots.get(i).size());
+		}
+	}
+
+	@Override
+	public <T> void update(File dir, Class<T> type, T instance) {
+		String keys = keys(type, instance);
+		for (PairValue<FileIndexed> p : EntityModel.of(type).getIndexed()) {
+			index(file(dir, type, p), p).put(keys, p.get(instance));
+		}
+	}
+
+	@Override
+	public <T> void updateAll(File dir, Class<T> type, Collection<T> instances) {
+		for (PairValue<FileIndexed> p : EntityModel.of(type).getIndexed()) {
+			Map<String, Object> values = new LinkedHashMap<>();
+			for (T instance : instances) {
+				values.put(keys(type, instance), p.get(instance));
+			}
+			index(file(dir, type, p), p).putAll(values);
+		}
+	}
+
+	@Override
+	public <T> void remove(File dir, Class<T> type, T instance) {
+		String keys = keys(type, instance);
+		for (PairValue<FileIndexed> p : EntityModel.of(type).getIndexed()) {
+			index(file(dir, type, p), p).remove(keys);
+		}
+	}
+
+	@Override
+	public <T> Collection<Object[]> lookup(File dir, Class<T> type, FileCondition condition) {
+		PairValue<FileIndexed> p = property(type, condition.getProperty());
+		if (p == null) {
+			return null;
+		}
+		return index(file(dir, type, p), p).lookup(condition).stream().map(k -> (Object[]) k.split(SEPARATOR, -1))
+				.collect(Collectors.toList());
+	}
+
+	private String keys(Class<?> type, Object instance) {
+		return Stream.of(UtilAnnotations.getKeys(type, instance)).map(String::valueOf)
+				.collect(Collectors.joining(SEPARATOR));
+	}
+
+	private File file(File dir, Class<?> type, PairValue<FileIndexed> property) {
+		return new File(new File(dir, ".index"),
+				"." + EntityModel.of(type).getFileName("data") + "." + INDEXED + "." + property.getName())
+				.getAbsoluteFile();
+	}
+
+	private PropertyIndex index(File file, PairValue<FileIndexed> property) {
+		return indexes.computeIfAbsent(file,
+				f -> new PropertyIndex(f, mapper.constructType(property.getRead().getGenericReturnType())));
+	}
+
+	private class PropertyIndex implements FileAppendLog.Replay {
+		private final FileAppendLog journal;
+		private final JavaType valueType;
+		private final NavigableMap<Object, Set<String>> values = new TreeMap<>(FileCondition::compare);
+		private final Map<String, Object> byKeys = new HashMap<>();
+
+		PropertyIndex(File file, JavaType valueType) {
+			this.journal = new FileAppendLog(file, mapper, writer, this);
+			this.valueType = valueType;
+		}
+
+		synchronized void put(String keys, Object value) {
+			append(Collections.singletonList(line(keys, value)));
+		}
+
+		synchronized void putAll(Map<String, Object> values) {
+			List<JsonNode> lines = new ArrayList<>(values.size());
+			values.forEach((k, v) -> lines.add(line(k, v)));
+			append(lines);
+		}
+
+		synchronized void remove(String keys) {
+			append(Collections.singletonList(mapper.createArrayNode().add(REMOVE).add(keys)));
+		}
+
+		synchronized Set<String> lookup(FileCondition condition) {
+			sync();
+			Set<String> result = new LinkedHashSet<>();
+			switch (condition.getOperator()) {
+			case EQ:
+				addAll(result, values.get(condition.getValue()));
+				break;
+			case IN:
+				if (condition.getValues() != null) {
+					condition.getValues().forEach(v -> addAll(result, values.get(v)));
+				}
+				break;
+			case RANGE:
+				NavigableMap<Object, Set<String>> range = values;
+				if (condition.getFrom() != null) {
+					range = range.tailMap(condition.getFrom(), condition.isFromInclusive());
+				} else {
+					range = range.tailMap(null, false);
+				}
+				if (condition.getTo() != null) {
+					range = range.headMap(condition.getTo(), condition.isToInclusive());
+				}
+				range.values().forEach(v -> addAll(result, v));
+				break;
+			default:
+				throw new FileStorageException("Unsupported operator: " + condition.getOperator(), null);
+			}
+			return result;
+		}
+
+		private void addAll(Set<String> result, Set<String> keys) {
+			if (keys != null) {
+				result.addAll(keys);
+			}
+		}
+
+		synchronized void snapshot(Map<String, Object> snapshot) {
+			journal.snapshot(() -> lines(snapshot));
+		}
+
+		private List<JsonNode> lines(Map<String, Object> snapshot) {
+			List<JsonNode> lines = new ArrayList<>(snapshot.size());
+			snapshot.forEach((k, v) -> lines.add(line(k, v)));
+			return lines;
+		}
+
+		private JsonNode line(String keys, Object value) {
+			ArrayNode line = mapper.createArrayNode().add(ADD).add(keys);
+			line.add(mapper.valueToTree(value));
+			return line;
+		}
+
+		private void append(List<JsonNode> lines) {
+			journal.append(lines);
+			compact();
+		}
+
+		private void sync() {
+			journal.sync();
+			compact();
+		}
+
+		@Override
+		public void apply(JsonNode line) {
+			String keys = line.get(1).asText();
+			if (byKeys.containsKey(keys)) {
+				Object old = byKeys.remove(keys);
+				Set<String> set = values.get(old);
+				if (set != null) {
+					set.remove(keys);
+					if (set.isEmpty()) {
+						values.remove(old);
+					}
+				}
+			}
+			if (ADD.equals(line.get(0).asText())) {
+				Object value = mapper.convertValue(line.get(2), valueType);
+				byKeys.put(keys, value);
+				values.computeIfAbsent(value, k -> new LinkedHashSet<>()).add(keys);
+			}
+		}
+
+		private void compact() {
+			if (obsolete()) {
+				log.info("Compacting index: {}, entries={}, live={}", journal.getFile(), journal.getEntries(),
+						byKeys.size());
+				// another instance may have compacted meanwhile
+				journal.snapshot(() -> obsolete() ? lines(byKeys) : null);
+			}
+		}
+
+		private boolean obsolete() {
+			long entries = journal.getEntries();
+			return entries > compaction && entries > 2L * byKeys.size();
+		}
+
+		@Override
+		public void reset() {
+			values.clear();
+			byKeys.clear();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes a lazy stream, opened for each subscriber on its first request.
+ * Items are pulled only as requested, one drain at a time on the executor,
+ * and the stream is closed on completion, error or cancel.
+ */
+@Slf4j
+class FilePublisher<T> implements Publisher<T> {
+
+	private final Supplier<Stream<T>> source;
+	private final Executor executor;
+
+	FilePublisher(Supplier<Stream<T>> source, Executor executor) {
+		this.source = source;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("Subscriber required.");
+		}
+		Emitter emitter = new Emitter(subscriber);
+		subscriber.onSubscribe(emitter);
+	}
+
+	private class Emitter implements Subscription, Runnable {
+		private final Subscriber<? super T> subscriber;
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger pending = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile Throwable invalid;
+		// accessed by the single running drain
+		private boolean done;
+		private Stream<T> stream;
+		private Iterator<T> iterator;
+
+		Emitter(Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalid = new IllegalArgumentException("Request must be positive: " + n);
+			} else {
+				requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if (pending.getAndIncrement() == 0) {
+				try {
+					executor.execute(this);
+				} catch (RuntimeException e) {
+					// the drain is not running, so this thread owns it
+					if (!done && !cancelled) {
+						finish();
+						subscriber.onError(e);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			int missed = 1;
+			do {
+				drain();
+				missed = pending.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void drain() {
+			if (done) {
+				return;
+			}
+			if (cancelled) {
+				finish();
+				return;
+			}
+			if (invalid != null) {
+				finish();
+				subscriber.onError(invalid);
+				return;
+			}
+			try {
+				if (iterator == null) {
+					stream = source.get();
+					iterator = stream.iterator();
+				}
+				long emitted = 0;
+				long limit = requested.get();
+				while (emitted != limit && iterator.hasNext()) {
+					if (cancelled) {
+						finish();
+						return;
+					}
+					subscriber.onNext(iterator.next());
+					emitted++;
+				}
+				if (!cancelled && (emitted != limit || !iterator.hasNext())) {
+					finish();
+					subscriber.onComplete();
+					return;
+				}
+				if (limit != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+			} catch (Throwable e) {
+				finish();
+				if (!cancelled) {
+					subscriber.onError(e);
+				}
+			}
+		}
+
+		private void finish() {
+			done = true;
+			if (stream != null) {
+				try {
+					stream.close();
+				} catch (RuntimeException e) {
+					log.warn("Could not close stream.", e);
+				}
+				stream = null;
+				iterator = null;
+			}
+		}
+	}
+}
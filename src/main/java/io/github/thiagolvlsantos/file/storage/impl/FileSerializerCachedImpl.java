@@ -0,0 +1,178 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.AnnotatedType;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import io.github.thiagolvlsantos.file.storage.IFileSerializer;
+import io.github.thiagolvlsantos.file.storage.IFileWriter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read-through cache of objects in front of {@link FileSerializerImpl}.
+ * Objects are kept by file, least recently used are evicted beyond
+ * <code>file.storage.cache.entries</code>, and an entry is only used while
+ * the file keeps the same modification time and length, for reads of the
+ * type it was kept for. Writes of entity data files refresh their entry,
+ * other writes, as log payloads, only drop it. Callers always get their own
+ * copy.
+ *
+ * Enabled with <code>file.storage.cache.enabled=true</code>. As every object
+ * read of the storage goes through the serializer, including the previous
+ * version read by writes, this covers all of them.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "file.storage.cache.enabled", havingValue = "true")
+@Slf4j
+public class FileSerializerCachedImpl implements IFileSerializer {
+
+	private @Autowired FileSerializerImpl delegate;
+	private @Value("${file.storage.cache.entries:1000}") int entries = 1000;
+
+	private final Map<File, Entry> cache = new LinkedHashMap<File, Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<File, Entry> eldest) {
+			return size() > entries;
+		}
+	};
+
+	@Override
+	public <T> String getFile(Class<T> type) {
+		return delegate.getFile(type);
+	}
+
+	@Override
+	public <T> List<String> getFiles(Class<T> type) {
+		return delegate.getFiles(type);
+	}
+
+	@Override
+	public <T> String getMetadataFile(Class<T> type) {
+		return delegate.getMetadataFile(type);
+	}
+
+	@Override
+	public <T> boolean isWrapped(Class<T> type) {
+		return delegate.isWrapped(type);
+	}
+
+	@Override
+	public <T> T decode(byte[] data, Class<T> type) {
+		return delegate.decode(data, type);
+	}
+
+	@Override
+	public Object decode(String data, AnnotatedType type) {
+		return delegate.decode(data, type);
+	}
+
+	@Override
+	public String encode(Object instance) {
+		return delegate.encode(instance);
+	}
+
+	@Override
+	public <T> T copy(T instance) {
+		return delegate.copy(instance);
+	}
+
+	@Override
+	public <T> T readValue(File file, Class<T> type) {
+		File key = file.getAbsoluteFile();
+		BasicFileAttributes attributes = attributes(file);
+		if (attributes != null) {
+			Entry entry;
+			synchronized (cache) {
+				entry = cache.get(key);
+			}
+			if (entry != null && entry.type == type && entry.isValid(attributes)) {
+				log.debug("Cache hit: {}", file);
+				return type.cast(delegate.copy(entry.value));
+			}
+		}
+		T value = delegate.readValue(file, type);
+		put(key, type, attributes, delegate.copy(value));
+		return value;
+	}
+
+	@Override
+	public <T> void writeValue(File file, T instance) {
+		remove(file.getAbsoluteFile());
+		delegate.writeValue(file, instance);
+	}
+
+	@Override
+	public <T> void writeValue(File file, T instance, IFileWriter writer) {
+		remove(file.getAbsoluteFile());
+		delegate.writeValue(file, instance, writer);
+	}
+
+	@Override
+	public <T> void writeValue(File file, T instance, Class<T> type, IFileWriter writer) {
+		File key = file.getAbsoluteFile();
+		remove(key);
+		delegate.writeValue(file, instance, type, writer);
+		put(key, type, attributes(file), delegate.copy(instance));
+	}
+
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+	}
+
+	private void put(File key, Class<?> type, BasicFileAttributes attributes, Object value) {
+		if (attributes != null) {
+			synchronized (cache) {
+				cache.put(key, new Entry(type, value, attributes.lastModifiedTime(), attributes.size()));
+			}
+		}
+	}
+
+	private void remove(File key) {
+		synchronized (cache) {
+			cache.remove(key);
+		}
+	}
+
+	private BasicFileAttributes attributes(File file) {
+		try {
+			return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static class Entry {
+		private final Class<?> type;
+		private final Object value;
+		private final FileTime modified;
+		private final long length;
+
+		Entry(Class<?> type, Object value, FileTime modified, long length) {
+			this.type = type;
+			this.value = value;
+			this.modified = modified;
+			this.length = length;
+		}
+
+		boolean isValid(BasicFileAttributes attributes) {
+			return attributes.lastModifiedTime().equals(modified) && attributes.size() == length;
+		}
+	}
+}
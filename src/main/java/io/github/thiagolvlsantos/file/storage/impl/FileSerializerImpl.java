@@ -1,27 +1,42 @@
 package io.github.thiagolvlsantos.file.storage.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.AnnotatedType;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.PostConstruct;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import io.github.thiagolvlsantos.file.storage.IFileSerializer;
-import io.github.thiagolvlsantos.file.storage.entity.FileName;
+import io.github.thiagolvlsantos.file.storage.annotations.EntityModel;
 import io.github.thiagolvlsantos.file.storage.entity.FileWrapped;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageNotFoundException;
@@ -30,51 +45,160 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+/**
+ * Jackson serializer with configurable formats. Objects are written with
+ * <code>file.storage.serializer.format</code>: <code>json</code> (default,
+ * indented), <code>compact</code> (json in one line), <code>smile</code> or
+ * <code>cbor</code>, each with its file extension. Reads detect the format
+ * of each file, and names of formats listed in
+ * <code>file.storage.serializer.formats</code> are also accepted, so
+ * repositories can be converted gradually as objects are rewritten.
+ *
+ * Resource metadata and decode/encode are always JSON.
+ *
+ * Readers and writers are resolved once per format and type, so root
+ * (de)serializers are not looked up on every call. Files up to 64KB are read
+ * whole into a buffer taken from a small shared pool (two per processor) and
+ * parsed from it, so scans do not allocate per file; larger files, or reads
+ * finding the pool empty, get a buffer of their own.
+ */
 @Component
 public class FileSerializerImpl implements IFileSerializer {
 
-	private ObjectMapper mapper;
-	private ObjectMapper mapperWrapped;
+	public enum Format {
+		JSON("json"), COMPACT("json"), SMILE("smile"), CBOR("cbor");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		public static Format of(String name) {
+			try {
+				return valueOf(name.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new FileStorageException("Invalid serializer format: " + name, e);
+			}
+		}
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final BlockingQueue<byte[]> BUFFERS = new ArrayBlockingQueue<>(
+			2 * Runtime.getRuntime().availableProcessors());
+
+	private @Value("${file.storage.serializer.format:json}") String format = "json";
+	private @Value("${file.storage.serializer.formats:}") String formats = "";
+
+	private Codec json;
+	private Codec jsonWrapped;
+	private Format output;
+	private List<String> extensions;
+	private Map<Format, Codec> codecs = new EnumMap<>(Format.class);
+	private Map<Format, Codec> codecsWrapped = new EnumMap<>(Format.class);
 	private Map<Class<?>, Boolean> wrapped = new ConcurrentHashMap<>();
 
 	@PostConstruct
 	public void configure() {
-		mapper = configure(new ObjectMapper());
-		mapperWrapped = configure(new ObjectMapper());
-		mapperWrapped.activateDefaultTypingAsProperty(mapperWrapped.getPolymorphicTypeValidator(),
-				ObjectMapper.DefaultTyping.JAVA_LANG_OBJECT, "@class");
+		for (Format f : Format.values()) {
+			codecs.put(f, new Codec(create(f)));
+			ObjectMapper w = create(f);
+			w.activateDefaultTypingAsProperty(w.getPolymorphicTypeValidator(),
+					ObjectMapper.DefaultTyping.JAVA_LANG_OBJECT, "@class");
+			codecsWrapped.put(f, new Codec(w));
+		}
+		json = codecs.get(Format.JSON);
+		jsonWrapped = codecsWrapped.get(Format.JSON);
+		output = Format.of(format);
+		Set<String> names = new LinkedHashSet<>();
+		names.add(output.getExtension());
+		for (String f : formats.split(",")) {
+			if (!f.trim().isEmpty()) {
+				names.add(Format.of(f).getExtension());
+			}
+		}
+		extensions = new ArrayList<>(names);
 	}
 
-	private ObjectMapper configure(ObjectMapper mapper) {
+	private ObjectMapper create(Format format) {
+		switch (format) {
+		case SMILE:
+			return configure(new ObjectMapper(new SmileFactory()), false);
+		case CBOR:
+			return configure(
+					new ObjectMapper(CBORFactory.builder().enable(CBORGenerator.Feature.WRITE_TYPE_HEADER).build()),
+					false);
+		case COMPACT:
+			return configure(new ObjectMapper(), false);
+		default:
+			return configure(new ObjectMapper(), true);
+		}
+	}
+
+	private ObjectMapper configure(ObjectMapper mapper, boolean indent) {
 		mapper = mapper// specific instance
 				.configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)//
 				.configure(MapperFeature.ALLOW_EXPLICIT_PROPERTY_RENAMING, true)//
 				.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)//
 				.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)//
-				.enable(SerializationFeature.INDENT_OUTPUT);
+				.configure(SerializationFeature.INDENT_OUTPUT, indent);
 		return mapper.registerModule(new JavaTimeModule());
 	}
 
 	@Override
 	public <T> String getFile(Class<T> type) {
-		String result = "data";
-		FileName name = AnnotationUtils.findAnnotation(type, FileName.class);
-		if (name != null) {
-			result = name.value();
+		return EntityModel.of(type).getFileName("data") + "." + output.getExtension();
+	}
+
+	@Override
+	public <T> List<String> getFiles(Class<T> type) {
+		String name = EntityModel.of(type).getFileName("data");
+		List<String> result = new ArrayList<>(extensions.size());
+		for (String e : extensions) {
+			result.add(name + "." + e);
+		}
+		return result;
+	}
+
+	@Override
+	public <T> String getMetadataFile(Class<T> type) {
+		return EntityModel.of(type).getFileName("data") + ".json";
+	}
+
+	/**
+	 * Format of serialized data, from its first bytes.
+	 */
+	public static Format detect(byte[] data) {
+		return detect(data, data.length);
+	}
+
+	private static Format detect(byte[] data, int length) {
+		if (length >= 3 && data[0] == ':' && data[1] == ')' && data[2] == '\n') {
+			return Format.SMILE;
+		}
+		if (length >= 3 && (data[0] & 0xFF) == 0xD9 && (data[1] & 0xFF) == 0xD9 && (data[2] & 0xFF) == 0xF7) {
+			return Format.CBOR;
 		}
-		return result + ".json";
+		if (length >= 1 && (data[0] & 0xE0) == 0xA0) {
+			// CBOR map without self-describe tag
+			return Format.CBOR;
+		}
+		return Format.JSON;
 	}
 
 	@Override
 	public <T> boolean isWrapped(Class<T> type) {
-		wrapped.computeIfAbsent(type, k -> AnnotationUtils.findAnnotation(type, FileWrapped.class) != null);
-		return wrapped.get(type);
+		return wrapped.computeIfAbsent(type, k -> AnnotationUtils.findAnnotation(type, FileWrapped.class) != null);
 	}
 
 	@Override
 	public <T> T decode(byte[] data, Class<T> type) {
 		try {
-			T tmp = mapper.readValue(data, type);
+			T tmp = json.reader(type).readValue(data);
 			return type.cast(tmp);
 		} catch (IOException e) {
 			throw new FileStorageException("Could not read value. '" + data + "'", e);
@@ -84,13 +208,7 @@ public class FileSerializerImpl implements IFileSerializer {
 	@Override
 	public Object decode(String data, AnnotatedType type) {
 		try {
-			TypeReference<?> tr = new TypeReference<Object>() {
-				@Override
-				public Type getType() {
-					return type.getType();
-				}
-			};
-			return mapper.readValue(data, tr);
+			return json.reader(type.getType()).readValue(data);
 		} catch (IOException e) {
 			throw new FileStorageException("Could not read value. '" + data + "'", e);
 		}
@@ -98,9 +216,8 @@ public class FileSerializerImpl implements IFileSerializer {
 
 	@Override
 	public String encode(Object instance) {
-		try (ByteArrayOutputStream bout = new ByteArrayOutputStream()) {
-			mapper.writeValue(bout, instance);
-			return new String(bout.toByteArray());
+		try {
+			return json.writer(instance.getClass()).writeValueAsString(instance);
 		} catch (IOException e) {
 			throw new FileStorageException("Could not write value.", e);
 		}
@@ -111,17 +228,47 @@ public class FileSerializerImpl implements IFileSerializer {
 		if (!file.exists()) {
 			throw new FileStorageNotFoundException("Object not found.", null);
 		}
-		try {
+		byte[] data = null;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			data = buffer(channel.size());
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// until full
+			}
+			int length = buffer.position();
+			Format input = detect(data, length);
 			Object obj = null;
 			if (isWrapped(type)) {
-				ObjectWrapper wrapper = mapperWrapped.readValue(file, ObjectWrapper.class);
+				ObjectWrapper wrapper = codecsWrapped.get(input).reader(ObjectWrapper.class).readValue(data, 0,
+						length);
 				obj = wrapper.getObject();
 			} else {
-				obj = mapper.readValue(file, type);
+				obj = codecs.get(input).reader(type).readValue(data, 0, length);
 			}
 			return type.cast(obj);
 		} catch (IOException e) {
 			throw new FileStorageException("Could not read object.", e);
+		} finally {
+			release(data);
+		}
+	}
+
+	// a buffer of at least size bytes
+	private byte[] buffer(long size) throws IOException {
+		if (size > Integer.MAX_VALUE - 8) {
+			throw new IOException("File too large: " + size);
+		}
+		if (size > BUFFER_SIZE) {
+			return new byte[(int) size];
+		}
+		byte[] pooled = BUFFERS.poll();
+		return pooled != null ? pooled : new byte[BUFFER_SIZE];
+	}
+
+	// back to the pool, dropped when it is full
+	private void release(byte[] data) {
+		if (data != null && data.length == BUFFER_SIZE) {
+			BUFFERS.offer(data);
 		}
 	}
 
@@ -129,15 +276,65 @@ public class FileSerializerImpl implements IFileSerializer {
 	public <T> void writeValue(File file, T instance) {
 		try {
 			if (isWrapped(instance.getClass())) {
-				mapperWrapped.writeValue(file, new ObjectWrapper(instance));
+				codecsWrapped.get(output).writer(ObjectWrapper.class).writeValue(file, new ObjectWrapper(instance));
 			} else {
-				mapper.writeValue(file, instance);
+				codecs.get(output).writer(instance.getClass()).writeValue(file, instance);
 			}
 		} catch (IOException e) {
 			throw new FileStorageException("Could not write object.", e);
 		}
 	}
 
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T copy(T instance) {
+		if (instance == null) {
+			return null;
+		}
+		try {
+			if (isWrapped(instance.getClass())) {
+				TokenBuffer buffer = new TokenBuffer(jsonWrapped.mapper, false);
+				jsonWrapped.writer(ObjectWrapper.class).writeValue(buffer, new ObjectWrapper(instance));
+				return (T) jsonWrapped.reader(ObjectWrapper.class).<ObjectWrapper>readValue(buffer.asParser())
+						.getObject();
+			}
+			TokenBuffer buffer = new TokenBuffer(json.mapper, false);
+			json.writer(instance.getClass()).writeValue(buffer, instance);
+			return (T) json.reader(instance.getClass()).readValue(buffer.asParser());
+		} catch (IOException e) {
+			throw new FileStorageException("Could not copy object.", e);
+		}
+	}
+
+	/**
+	 * Mapper of a format with its readers and writers by type.
+	 */
+	private static class Codec {
+		private final ObjectMapper mapper;
+		private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+		private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+		Codec(ObjectMapper mapper) {
+			this.mapper = mapper;
+		}
+
+		ObjectReader reader(Type type) {
+			ObjectReader reader = readers.get(type);
+			if (reader == null) {
+				reader = readers.computeIfAbsent(type, t -> mapper.readerFor(mapper.constructType(t)));
+			}
+			return reader;
+		}
+
+		ObjectWriter writer(Class<?> type) {
+			ObjectWriter writer = writers.get(type);
+			if (writer == null) {
+				writer = writers.computeIfAbsent(type, mapper::writerFor);
+			}
+			return writer;
+		}
+	}
+
 	@Getter
 	@Setter
 	@AllArgsConstructor
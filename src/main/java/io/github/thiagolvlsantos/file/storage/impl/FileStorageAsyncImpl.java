@@ -0,0 +1,266 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.github.thiagolvlsantos.file.storage.IFileStorage;
+import io.github.thiagolvlsantos.file.storage.IFileStorageAsync;
+import io.github.thiagolvlsantos.file.storage.KeyParams;
+import io.github.thiagolvlsantos.file.storage.SearchParams;
+import io.github.thiagolvlsantos.file.storage.resource.Resource;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs {@link IFileStorage} calls on <code>file.storage.async.threads</code>
+ * daemon threads (default available processors) with at most
+ * <code>file.storage.async.queue</code> calls waiting (default 1024), further
+ * calls are rejected. Idle threads end after 60 seconds. With
+ * <code>file.storage.async.virtual=true</code> on JDK 21+ each call gets a
+ * virtual thread instead, still limited to threads plus queue calls in flight;
+ * older JDKs fall back to the pool.
+ */
+@Component
+@Slf4j
+public class FileStorageAsyncImpl implements IFileStorageAsync {
+
+	private @Autowired IFileStorage storage;
+
+	private @Value("${file.storage.async.threads:0}") int threads;
+	private @Value("${file.storage.async.queue:1024}") int queue = 1024;
+	private @Value("${file.storage.async.virtual:false}") boolean virtual;
+
+	private ExecutorService pool;
+	private Semaphore permits;
+
+	@PostConstruct
+	public void configure() {
+		int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		if (virtual) {
+			pool = FileExecutorImpl.virtualThreads();
+			if (pool != null) {
+				permits = new Semaphore(size + Math.max(0, queue));
+				log.info("Async executor: virtual threads, limit={}", size + Math.max(0, queue));
+				return;
+			}
+			log.warn("Virtual threads not available, using a pool.");
+		}
+		AtomicInteger count = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, queue)), r -> {
+					Thread t = new Thread(r, "file-storage-async-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		// idle threads end after keep alive, they are created again on demand
+		executor.allowCoreThreadTimeOut(true);
+		pool = executor;
+		log.info("Async executor: threads={}, queue={}", size, queue);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * @throws RejectedExecutionException when saturated.
+	 */
+	protected void execute(Runnable task) {
+		if (permits != null && !permits.tryAcquire()) {
+			throw new RejectedExecutionException("Too many asynchronous storage calls.");
+		}
+		try {
+			pool.execute(permits == null ? task : () -> {
+				try {
+					task.run();
+				} finally {
+					permits.release();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			if (permits != null) {
+				permits.release();
+			}
+			throw e;
+		}
+	}
+
+	protected <R> CompletableFuture<R> submit(Supplier<R> call) {
+		CompletableFuture<R> future = new CompletableFuture<>();
+		try {
+			execute(() -> {
+				try {
+					future.complete(call.get());
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	@Override
+	public IFileStorage getStorage() {
+		return storage;
+	}
+
+	// +------------- ENTITY METHODS ------------------+
+
+	@Override
+	public <T> CompletableFuture<Boolean> exists(File dir, Class<T> type, T example) {
+		return submit(() -> storage.exists(dir, type, example));
+	}
+
+	@Override
+	public <T> CompletableFuture<Boolean> exists(File dir, Class<T> type, KeyParams keys) {
+		return submit(() -> storage.exists(dir, type, keys));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> write(File dir, Class<T> type, T instance) {
+		return submit(() -> storage.write(dir, type, instance));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> writeIfRevision(File dir, Class<T> type, T instance, long expectedRevision) {
+		return submit(() -> storage.writeIfRevision(dir, type, instance, expectedRevision));
+	}
+
+	@Override
+	public <T> CompletableFuture<List<T>> writeAll(File dir, Class<T> type, Collection<T> instances) {
+		return submit(() -> storage.writeAll(dir, type, instances));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> read(File dir, Class<T> type, T example) {
+		return submit(() -> storage.read(dir, type, example));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> read(File dir, Class<T> type, KeyParams keys) {
+		return submit(() -> storage.read(dir, type, keys));
+	}
+
+	@Override
+	public <T> CompletableFuture<List<T>> readAll(File dir, Class<T> type, Collection<KeyParams> keys) {
+		return submit(() -> storage.readAll(dir, type, keys));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> delete(File dir, Class<T> type, T example) {
+		return submit(() -> storage.delete(dir, type, example));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> delete(File dir, Class<T> type, KeyParams keys) {
+		return submit(() -> storage.delete(dir, type, keys));
+	}
+
+	@Override
+	public <T> CompletableFuture<Long> count(File dir, Class<T> type, SearchParams search) {
+		return submit(() -> storage.count(dir, type, search));
+	}
+
+	@Override
+	public <T> CompletableFuture<List<T>> list(File dir, Class<T> type, SearchParams search) {
+		return submit(() -> storage.list(dir, type, search));
+	}
+
+	@Override
+	public <T> Publisher<T> publish(File dir, Class<T> type, SearchParams search) {
+		return new FilePublisher<>(() -> storage.stream(dir, type, search), this::execute);
+	}
+
+	// +------------- PROPERTY METHODS ------------------+
+
+	@Override
+	public <T> CompletableFuture<T> setProperty(File dir, Class<T> type, KeyParams keys, String property,
+			Object data) {
+		return submit(() -> storage.setProperty(dir, type, keys, property, data));
+	}
+
+	@Override
+	public <T> CompletableFuture<List<T>> setProperty(File dir, Class<T> type, String property, Object data,
+			SearchParams search) {
+		return submit(() -> storage.setProperty(dir, type, property, data, search));
+	}
+
+	@Override
+	public <T> CompletableFuture<Object> getProperty(File dir, Class<T> type, KeyParams keys, String property) {
+		return submit(() -> storage.getProperty(dir, type, keys, property));
+	}
+
+	@Override
+	public <T> CompletableFuture<Map<String, Object>> properties(File dir, Class<T> type, KeyParams keys,
+			KeyParams names) {
+		return submit(() -> storage.properties(dir, type, keys, names));
+	}
+
+	@Override
+	public <T> CompletableFuture<Map<String, Map<String, Object>>> properties(File dir, Class<T> type,
+			KeyParams names, SearchParams search) {
+		return submit(() -> storage.properties(dir, type, names, search));
+	}
+
+	// +------------- RESOURCE METHODS ------------------+
+
+	@Override
+	public <T> CompletableFuture<Boolean> existsResource(File dir, Class<T> type, KeyParams keys, String path) {
+		return submit(() -> storage.existsResource(dir, type, keys, path));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> setResource(File dir, Class<T> type, KeyParams keys, Resource resource) {
+		return submit(() -> storage.setResource(dir, type, keys, resource));
+	}
+
+	@Override
+	public <T> CompletableFuture<Resource> getResource(File dir, Class<T> type, KeyParams keys, String path) {
+		return submit(() -> storage.getResource(dir, type, keys, path));
+	}
+
+	@Override
+	public <T> CompletableFuture<T> deleteResource(File dir, Class<T> type, KeyParams keys, String path) {
+		return submit(() -> storage.deleteResource(dir, type, keys, path));
+	}
+
+	@Override
+	public <T> CompletableFuture<Long> countResources(File dir, Class<T> type, KeyParams keys,
+			SearchParams search) {
+		return submit(() -> storage.countResources(dir, type, keys, search));
+	}
+
+	@Override
+	public <T> CompletableFuture<List<Resource>> listResources(File dir, Class<T> type, KeyParams keys,
+			SearchParams search) {
+		return submit(() -> storage.listResources(dir, type, keys, search));
+	}
+
+	@Override
+	public <T> Publisher<Resource> publishResources(File dir, Class<T> type, KeyParams keys, SearchParams search) {
+		return new FilePublisher<>(() -> storage.streamResources(dir, type, keys, search), this::execute);
+	}
+}
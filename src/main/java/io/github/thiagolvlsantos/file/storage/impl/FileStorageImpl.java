@@ -1,46 +1,63 @@
 package io.github.thiagolvlsantos.file.storage.impl;
 
-import java.beans.PropertyDescriptor;
 import java.io.File;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
-import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.collections.comparators.ComparatorChain;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
-import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.stereotype.Component;
+import org.springframework.util.NumberUtils;
 
+import io.github.thiagolvlsantos.file.storage.IFileExecutor;
 import io.github.thiagolvlsantos.file.storage.IFileIndex;
+import io.github.thiagolvlsantos.file.storage.IFileLocks;
+import io.github.thiagolvlsantos.file.storage.IFilePropertyIndex;
 import io.github.thiagolvlsantos.file.storage.IFileSerializer;
 import io.github.thiagolvlsantos.file.storage.IFileStorage;
+import io.github.thiagolvlsantos.file.storage.IFileWal;
+import io.github.thiagolvlsantos.file.storage.IFileWriter;
 import io.github.thiagolvlsantos.file.storage.KeyParams;
 import io.github.thiagolvlsantos.file.storage.SearchParams;
+import io.github.thiagolvlsantos.file.storage.annotations.EntityModel;
 import io.github.thiagolvlsantos.file.storage.annotations.FileKeep;
 import io.github.thiagolvlsantos.file.storage.annotations.PairValue;
 import io.github.thiagolvlsantos.file.storage.annotations.UtilAnnotations;
@@ -55,8 +72,8 @@ import io.github.thiagolvlsantos.file.storage.audit.impl.FileAuditHelper;
 import io.github.thiagolvlsantos.file.storage.audit.impl.FileInitializerDefault;
 import io.github.thiagolvlsantos.file.storage.audit.impl.FileInitializerHelper;
 import io.github.thiagolvlsantos.file.storage.concurrency.FileRevision;
-import io.github.thiagolvlsantos.file.storage.entity.FileName;
 import io.github.thiagolvlsantos.file.storage.entity.FileRepo;
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageConcurrencyException;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageNotFoundException;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStoragePropertyNotFoundException;
@@ -67,11 +84,14 @@ import io.github.thiagolvlsantos.file.storage.identity.FileKey;
 import io.github.thiagolvlsantos.file.storage.resource.Resource;
 import io.github.thiagolvlsantos.file.storage.resource.ResourceContent;
 import io.github.thiagolvlsantos.file.storage.resource.ResourceMetadata;
+import io.github.thiagolvlsantos.file.storage.search.FileCondition;
 import io.github.thiagolvlsantos.file.storage.search.FileFilter;
+import io.github.thiagolvlsantos.file.storage.search.FileIndexed;
 import io.github.thiagolvlsantos.file.storage.search.FilePaging;
 import io.github.thiagolvlsantos.file.storage.search.FileSorting;
+import io.github.thiagolvlsantos.file.storage.util.accessor.PropertyAccessors;
 import io.github.thiagolvlsantos.file.storage.util.comparator.ComparatorNullSafe;
-import io.github.thiagolvlsantos.git.commons.file.FileUtils;
+import io.github.thiagolvlsantos.file.storage.util.comparator.ComparatorTopK;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
@@ -82,6 +102,16 @@ public class FileStorageImpl implements IFileStorage {
 	private @Autowired ApplicationContext context;
 	private @Autowired IFileSerializer serializer;
 	private @Autowired IFileIndex idManager;
+	private @Autowired IFilePropertyIndex propertyIndex;
+	private @Autowired IFileExecutor executor;
+	private @Autowired IFileWriter writer;
+	private @Autowired IFileWal wal;
+	private @Autowired IFileLocks locks;
+	private @Value("${file.storage.list.parallel:false}") boolean parallelList;
+	private @Value("${file.storage.list.batch:256}") int parallelBatch = 256;
+
+	// repositories already recovered
+	private final Set<File> opened = ConcurrentHashMap.newKeySet();
 
 	@Override
 	public IFileSerializer getSerializer() {
@@ -108,6 +138,7 @@ public class FileStorageImpl implements IFileStorage {
 
 	@Override
 	public <T> File location(File dir, Class<T> type, KeyParams ref) {
+		open(dir);
 		return entityDir(dir, type, ref);
 	}
 
@@ -124,11 +155,25 @@ public class FileStorageImpl implements IFileStorage {
 
 	@Override
 	public <T> boolean exists(File dir, Class<T> type, KeyParams keys) {
+		open(dir);
 		return entityFile(dir, type, keys).exists();
 	}
 
 	protected <T> File entityDir(File dir, Class<T> type, KeyParams keys) {
-		File path = entityRoot(dir, type);
+		return entityDir(entityRoot(dir, type), keys);
+	}
+
+	protected <T> List<File> entityDirs(File dir, Class<T> type, Collection<T> instances) {
+		File root = entityRoot(dir, type);
+		List<File> result = new ArrayList<>(instances.size());
+		for (T instance : instances) {
+			result.add(entityDir(root, KeyParams.of(UtilAnnotations.getKeys(type, instance))));
+		}
+		return result;
+	}
+
+	protected File entityDir(File root, KeyParams keys) {
+		File path = root;
 		for (Object k : keys) {
 			path = new File(path, String.valueOf(k));
 		}
@@ -137,7 +182,7 @@ public class FileStorageImpl implements IFileStorage {
 	}
 
 	protected <T> File entityRoot(File dir, Class<T> type) {
-		FileRepo entity = AnnotationUtils.findAnnotation(type, FileRepo.class);
+		FileRepo entity = EntityModel.of(type).getRepo();
 		log.debug("entity: {}", entity != null ? entity.value() : null);
 		if (entity == null) {
 			throw new FileStorageException(
@@ -147,6 +192,20 @@ public class FileStorageImpl implements IFileStorage {
 		return new File(dir, "@" + entity.value().replace("/", "/@"));
 	}
 
+	/**
+	 * Called by operations before touching a repository, redoes what its
+	 * write-ahead log has without commit on the first call.
+	 */
+	protected void open(File dir) {
+		if (wal.isEnabled()) {
+			File key = dir.getAbsoluteFile();
+			if (!opened.contains(key)) {
+				wal.recover(dir, serializer, e -> redo(dir, e));
+				opened.add(key);
+			}
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T write(File dir, T instance) {
@@ -154,73 +213,295 @@ public class FileStorageImpl implements IFileStorage {
 	}
 
 	@Override
-	@SneakyThrows
 	public <T> T write(File dir, Class<T> type, T instance) {
+		open(dir);
 		KeyParams keys = KeyParams.of(UtilAnnotations.getKeys(type, instance));
-		File file = entityFile(dir, type, keys);
-		T old = null;
-		if (file.exists()) {
-			old = read(file, type);
+		try (IFileLocks.Hold hold = locks.write(entityDir(dir, type, keys))) {
+			File file = entityFile(dir, type, keys);
+			return write(dir, type, instance, file.exists() ? read(file, type) : null);
 		}
+	}
 
-		PairValue<FileId>[] idFields = UtilAnnotations.getValues(FileId.class, type, instance);
-		log.info("ids: {}", Arrays.toString(idFields));
-		PairValue<FileCreated>[] createdFields = UtilAnnotations.getValues(FileCreated.class, type, instance);
-		log.info("created: {}", Arrays.toString(createdFields));
-		PairValue<FileCreatedBy>[] createdByFields = UtilAnnotations.getValues(FileCreatedBy.class, type, instance);
-		log.info("createdBy: {}", Arrays.toString(createdByFields));
-		if (!file.exists()) {
-			File parent = file.getParentFile();
-			if (!parent.exists() && !parent.mkdirs()) {
-				throw new FileStorageException("Could not create object directory: " + parent, null);
+	@Override
+	public <T> T writeIfRevision(File dir, Class<T> type, T instance, long expectedRevision) {
+		open(dir);
+		PairValue<FileRevision>[] revisions = EntityModel.of(type).getRevisions();
+		if (revisions.length == 0) {
+			throw new FileStorageException(
+					"Entity '" + type.getName() + "' has no @" + FileRevision.class.getSimpleName() + " property.",
+					null);
+		}
+		if (revisions.length > 1) {
+			throw new FileStorageException("Entity '" + type.getName() + "' has more than one @"
+					+ FileRevision.class.getSimpleName() + " property, the expected revision is ambiguous.", null);
+		}
+		PairValue<FileRevision> revision = revisions[0];
+		KeyParams keys = KeyParams.of(UtilAnnotations.getKeys(type, instance));
+		try (IFileLocks.Hold hold = locks.write(entityDir(dir, type, keys))) {
+			File file = entityFile(dir, type, keys);
+			T old = file.exists() ? read(file, type) : null;
+			long actual = -1;
+			if (old != null) {
+				Number current = (Number) revision.get(old);
+				actual = current != null ? current.longValue() : 0L;
+			}
+			if (actual != expectedRevision) {
+				throw new FileStorageConcurrencyException(keys, expectedRevision, actual);
+			}
+			if (old != null) {
+				// the change is based on the stored revision, whatever the instance carries, so it
+				// advances to actual + 1 even when none was stored
+				@SuppressWarnings("unchecked")
+				Class<Number> fieldType = (Class<Number>) revision.getRead().getReturnType();
+				Number stored = NumberUtils.convertNumberToTargetClass(actual, fieldType);
+				revision.set(old, stored);
+				revision.set(instance, stored);
 			}
-			initIds(dir, type, idFields, instance);
+			return write(dir, type, instance, old);
+		}
+	}
+
+	/**
+	 * Write when the previous version is already known, sparing its read.
+	 *
+	 * @param old the current stored version, <code>null</code> for new objects.
+	 *            Only its ids, creation, revision and {@link FileKeep} values
+	 *            are used, so it may be the instance itself when those were not
+	 *            changed.
+	 */
+	@SneakyThrows
+	protected <T> T write(File dir, Class<T> type, T instance, T old) {
+		EntityModel model = EntityModel.of(type);
+		prepareIndexed(dir, type);
+
+		PairValue<FileId>[] idFields = model.getIds();
+		PairValue<FileCreated>[] createdFields = model.getCreated();
+		PairValue<FileCreatedBy>[] createdByFields = model.getCreatedBy();
+		boolean bind = false;
+		if (old == null) {
+			bind = initIds(dir, type, idFields, instance);
 			initCreated(dir, type, createdFields, instance);
 			initCreatedBy(dir, type, createdByFields, instance);
 		} else {
 			keepValues(old, idFields, instance);
 			keepValues(old, createdFields, instance);
 			keepValues(old, createdByFields, instance);
-
-			PairValue<FileKeep>[] keepFields = UtilAnnotations.getValues(FileKeep.class, type, instance);
-			log.info("keep: {}", Arrays.toString(keepFields));
-			keepValues(old, keepFields, instance);
+			keepValues(old, model.getKeeps(), instance);
 		}
 
-		PairValue<FileRevision>[] revisions = UtilAnnotations.getValues(FileRevision.class, type, instance);
-		log.info("revisions: {}", Arrays.toString(revisions));
-		prepareRevisions(dir, type, revisions, instance, old);
+		prepareRevisions(dir, type, model.getRevisions(), instance, old);
+
+		prepareChanged(dir, type, model.getChanged(), instance);
+
+		prepareChangedBy(dir, type, model.getChangedBy(), instance);
+
+		apply(dir, type, Collections.singletonList(bind ? IFileWal.CREATE : IFileWal.WRITE),
+				Collections.singletonList(instance));
+
+		return instance;
+	}
+
+	@Override
+	@SneakyThrows
+	public <T> List<T> writeAll(File dir, Class<T> type, Collection<T> instances) {
+		open(dir);
+		try (IFileLocks.Hold hold = locks.write(entityDirs(dir, type, instances))) {
+			EntityModel model = EntityModel.of(type);
+			File root = entityRoot(dir, type);
+			prepareIndexed(dir, type);
+
+			// previous versions, a repeated object takes the former as old
+			List<T> result = new ArrayList<>(instances);
+			List<T> olds = new ArrayList<>(result.size());
+			Map<File, T> batch = new HashMap<>();
+			List<T> created = new ArrayList<>();
+			for (T instance : result) {
+				File path = entityDir(root, KeyParams.of(UtilAnnotations.getKeys(type, instance)));
+				File file = entityTarget(path, type);
+				File current = entityFile(path, type);
+				T old = batch.containsKey(file) ? batch.get(file) : current.exists() ? read(current, type) : null;
+				if (old == null) {
+					created.add(instance);
+				}
+				olds.add(old);
+				batch.put(file, instance);
+			}
 
-		PairValue<FileChanged>[] changed = UtilAnnotations.getValues(FileChanged.class, type, instance);
-		log.info("changed: {}", Arrays.toString(changed));
-		prepareChanged(dir, type, changed, instance);
+			Set<T> bound = initIds(root, type, model.getIds(), created);
 
-		PairValue<FileChangedBy>[] changedBy = UtilAnnotations.getValues(FileChangedBy.class, type, instance);
-		log.info("changedBy: {}", Arrays.toString(changedBy));
-		prepareChangedBy(dir, type, changedBy, instance);
+			for (int i = 0; i < result.size(); i++) {
+				T instance = result.get(i);
+				T old = olds.get(i);
+				if (old == null) {
+					initCreated(dir, type, model.getCreated(), instance);
+					initCreatedBy(dir, type, model.getCreatedBy(), instance);
+				} else {
+					keepValues(old, model.getIds(), instance);
+					keepValues(old, model.getCreated(), instance);
+					keepValues(old, model.getCreatedBy(), instance);
+					keepValues(old, model.getKeeps(), instance);
+				}
+				prepareRevisions(dir, type, model.getRevisions(), instance, old);
+				prepareChanged(dir, type, model.getChanged(), instance);
+				prepareChangedBy(dir, type, model.getChangedBy(), instance);
+			}
+
+			List<String> operations = new ArrayList<>(result.size());
+			for (T instance : result) {
+				operations.add(bound.contains(instance) ? IFileWal.CREATE : IFileWal.WRITE);
+			}
+			apply(dir, type, operations, result);
+
+			log.info("Objects written: {}, created: {}", result.size(), created.size());
+			return result;
+		}
+	}
+
+	/**
+	 * Apply prepared mutations, recorded in the write-ahead log when enabled.
+	 *
+	 * @param operations one of {@link IFileWal} operations by object.
+	 */
+	protected <T> void apply(File dir, Class<T> type, List<String> operations, List<T> objects)
+			throws IOException {
+		IFileWal.Entry entry = wal.isEnabled() ? wal.begin(dir, type, operations, objects, serializer) : null;
+		redo(dir, type, operations, objects);
+		if (entry != null) {
+			wal.commit(dir, entry);
+		}
+	}
+
+	/**
+	 * Bring files and indexes to the state of prepared mutations. Repeating it
+	 * gives the same state, so logged mutations can be redone.
+	 */
+	protected <T> void redo(File dir, Class<T> type, List<String> operations, List<T> objects) throws IOException {
+		File root = entityRoot(dir, type);
+		List<T> bind = new ArrayList<>();
+		List<T> written = new ArrayList<>();
+		List<File> files = new ArrayList<>();
+		Set<File> parents = new LinkedHashSet<>();
+		for (int i = 0; i < objects.size(); i++) {
+			T instance = objects.get(i);
+			String operation = operations.get(i);
+			if (IFileWal.DELETE.equals(operation)) {
+				remove(dir, type, instance);
+				continue;
+			}
+			if (IFileWal.CREATE.equals(operation)) {
+				bind.add(instance);
+			}
+			File file = entityTarget(entityDir(root, KeyParams.of(UtilAnnotations.getKeys(type, instance))), type);
+			written.add(instance);
+			files.add(file);
+			parents.add(file.getParentFile());
+		}
+		if (written.isEmpty()) {
+			return;
+		}
+		if (!bind.isEmpty()) {
+			idManager.bindAll(root, bind);
+		}
+		for (File parent : parents) {
+			writer.mkdirs(parent);
+		}
+		// distinct files, written in parallel
+		executor.map(IntStream.range(0, written.size()).boxed().collect(Collectors.toList()), i -> {
+			writeToFile(files.get(i), type, written.get(i));
+			removeFormats(files.get(i), type);
+			return i;
+		});
 
-		writeToFile(file, instance);
+		if (EntityModel.of(type).isIndexed()) {
+			prepareIndexed(dir, type);
+			propertyIndex.updateAll(root, type, written);
+		}
 
 		// init @resources
-		initResources(dir, type, keys);
+		for (File parent : parents) {
+			initResources(parent, type);
+		}
+	}
 
-		return instance;
+	@SuppressWarnings("unchecked")
+	private <T> void redo(File dir, IFileWal.Entry entry) {
+		try {
+			redo(dir, (Class<T>) entry.getType(), entry.getOperations(), (List<T>) entry.getObjects());
+		} catch (IOException e) {
+			throw new FileStorageException("Could not redo: " + entry, e);
+		}
+	}
+
+	/**
+	 * @return ids assigned, to bind.
+	 */
+	protected <T> Set<T> initIds(File root, Class<T> type, PairValue<FileId>[] ids, List<T> instances) {
+		Set<T> bound = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (PairValue<FileId> c : ids) {
+			List<T> missing = instances.stream().filter(i -> c.get(i) == null).collect(Collectors.toList());
+			if (!missing.isEmpty()) {
+				Object[] next = idManager.next(root, type, c, missing.size());
+				for (int i = 0; i < next.length; i++) {
+					c.set(missing.get(i), next[i]);
+				}
+				bound.addAll(missing);
+			}
+		}
+		return bound;
 	}
 
 	protected <T> File entityFile(File dir, Class<T> type, KeyParams keys) {
-		return new File(entityDir(dir, type, keys), serializer.getFile(type));
+		return entityFile(entityDir(dir, type, keys), type);
+	}
+
+	/**
+	 * Object file to read in an object directory: the one in the current
+	 * serializer format or, if missing, one in another accepted format.
+	 */
+	protected File entityFile(File entityDir, Class<?> type) {
+		List<String> names = serializer.getFiles(type);
+		File file = new File(entityDir, names.get(0));
+		for (int i = 1; i < names.size() && !file.exists(); i++) {
+			File other = new File(entityDir, names.get(i));
+			if (other.exists()) {
+				return other;
+			}
+		}
+		return file;
+	}
+
+	protected File entityTarget(File entityDir, Class<?> type) {
+		return new File(entityDir, serializer.getFile(type));
 	}
 
-	protected <T> void initIds(File dir, Class<T> type, PairValue<FileId>[] ids, T instance) {
+	/**
+	 * Remove files of the object in other formats, once rewritten.
+	 */
+	protected void removeFormats(File target, Class<?> type) {
+		List<String> names = serializer.getFiles(type);
+		for (int i = 1; i < names.size(); i++) {
+			File other = new File(target.getParentFile(), names.get(i));
+			if (!other.equals(target) && other.exists()) {
+				writer.delete(other);
+			}
+		}
+	}
+
+	/**
+	 * @return true if ids were assigned, to bind.
+	 */
+	protected <T> boolean initIds(File dir, Class<T> type, PairValue<FileId>[] ids, T instance) {
+		boolean assigned = false;
 		for (PairValue<FileId> c : ids) {
 			Object obj = c.get(instance);
 			if (obj == null) {
 				Object nextId = idManager.next(entityRoot(dir, type), type, c);
 				c.set(instance, nextId);
-				idManager.bind(entityRoot(dir, type), instance);
+				assigned = true;
 				log.info("new id: {}", c.get(instance));
 			}
 		}
+		return assigned;
 	}
 
 	protected <T> void initCreated(File dir, Class<T> type, PairValue<FileCreated>[] created, T instance) {
@@ -326,8 +607,8 @@ public class FileStorageImpl implements IFileStorage {
 		}
 	}
 
-	protected <T> void writeToFile(File target, T instance) {
-		serializer.writeValue(target, instance);
+	protected <T> void writeToFile(File target, Class<T> type, T instance) {
+		serializer.writeValue(target, instance, type, writer);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -343,7 +624,32 @@ public class FileStorageImpl implements IFileStorage {
 
 	@Override
 	public <T> T read(File dir, Class<T> type, KeyParams keys) {
-		return read(entityFile(dir, type, keys), type);
+		open(dir);
+		try (IFileLocks.Hold hold = locks.read(entityDir(dir, type, keys))) {
+			return read(entityFile(dir, type, keys), type);
+		}
+	}
+
+	@Override
+	public <T> List<T> readAll(File dir, Class<T> type, Collection<KeyParams> keys) {
+		open(dir);
+		File root = entityRoot(dir, type);
+		List<File> dirs = new ArrayList<>(keys.size());
+		for (KeyParams k : keys) {
+			dirs.add(entityDir(root, k));
+		}
+		List<T> result = executor.map(dirs, d -> {
+			try (IFileLocks.Hold hold = locks.read(d)) {
+				File f = entityFile(d, type);
+				return f.exists() ? read(f, type) : null;
+			}
+		});
+		if (result.contains(null)) {
+			List<KeyParams> list = new ArrayList<>(keys);
+			log.warn("Objects not found: {}", IntStream.range(0, list.size()).filter(i -> result.get(i) == null)
+					.mapToObj(list::get).collect(Collectors.toList()));
+		}
+		return result;
 	}
 
 	protected <T> T read(File file, Class<T> type) {
@@ -362,67 +668,196 @@ public class FileStorageImpl implements IFileStorage {
 	}
 
 	@Override
+	@SneakyThrows
 	public <T> T delete(File dir, Class<T> type, KeyParams keys) {
-		T old = null;
-		if (exists(dir, type, keys)) {
-			old = read(dir, type, keys);
-			File file = entityFile(dir, type, keys);
-			try {
-				FileUtils.delete(file);
-			} catch (IOException e) {
-				throw new FileStorageException("Could not delete file: " + file, e);
-			}
-			File root = entityDir(dir, type, keys);
-			File resources = resourceDir(root, type);
-			try {
-				FileUtils.delete(resources);
-			} catch (IOException e) {
-				throw new FileStorageException("Could not delete resources: " + resources, e);
-			}
-			if (root.listFiles().length == 0) {
-				try {
-					FileUtils.delete(root);
-				} catch (IOException e) {
-					throw new FileStorageException("Could not delete root: " + root, e);
-				}
+		open(dir);
+		try (IFileLocks.Hold hold = locks.write(entityDir(dir, type, keys))) {
+			T old = null;
+			if (exists(dir, type, keys)) {
+				old = read(dir, type, keys);
+				apply(dir, type, Collections.singletonList(IFileWal.DELETE), Collections.singletonList(old));
 			}
-			idManager.unbind(entityRoot(dir, type), old);
+			return old;
+		}
+	}
+
+	protected <T> void remove(File dir, Class<T> type, T old) {
+		KeyParams keys = KeyParams.of(UtilAnnotations.getKeys(type, old));
+		File file = entityFile(dir, type, keys);
+		if (file.exists()) {
+			writer.delete(file);
+		}
+		File root = entityDir(dir, type, keys);
+		File resources = resourceDir(root, type);
+		if (resources.exists()) {
+			writer.delete(resources);
+		}
+		File[] files = root.listFiles();
+		if (files != null && files.length == 0) {
+			writer.delete(root);
+		}
+		idManager.unbind(entityRoot(dir, type), old);
+		if (EntityModel.of(type).isIndexed()) {
+			prepareIndexed(dir, type);
+			propertyIndex.remove(entityRoot(dir, type), type, old);
 		}
-		return old;
 	}
 
 	@Override
 	public <T> long count(File dir, Class<T> type, SearchParams search) {
-		return list(dir, type, search).size();
+		open(dir);
+		// sorting does not change how many objects match
+		try (Stream<T> result = range(safePaging(search), filter(safeFilter(search), candidates(dir, type, search)))) {
+			return result.count();
+		}
 	}
 
 	@Override
 	public <T> List<T> list(File dir, Class<T> type, SearchParams search) {
-		return range(search != null ? search.getPaging() : null, //
-				filter(search != null ? search.getFilter() : null, //
-						sort(search != null ? search.getSorting() : null, //
-								all(dir, type, null))));
+		try (Stream<T> result = stream(dir, type, search)) {
+			return result.collect(Collectors.toList());
+		}
+	}
+
+	@Override
+	public <T> Stream<T> stream(File dir, Class<T> type, SearchParams search) {
+		open(dir);
+		Stream<T> result = filter(safeFilter(search), candidates(dir, type, search));
+		Comparator<T> sorter = sorter(safeSort(search));
+		FilePaging paging = safePaging(search);
+		if (sorter != null) {
+			if (isBounded(paging)) {
+				return top(result, sorter, paging);
+			}
+			result = result.sorted(sorter);
+		}
+		return range(paging, result);
+	}
+
+	protected boolean isBounded(FilePaging paging) {
+		return paging != null && paging.getMax() != null
+				&& (long) Math.max(0, paging.getStart()) + Math.max(0, paging.getMax()) < Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Sorted page selection keeping only <code>skip + max</code> candidates in
+	 * memory instead of sorting all objects.
+	 */
+	protected <T> Stream<T> top(Stream<T> result, Comparator<T> sorter, FilePaging paging) {
+		int start = Math.max(0, paging.getStart());
+		List<T> page;
+		try (Stream<T> tmp = result) {
+			page = tmp.collect(ComparatorTopK.collector(sorter, start + Math.max(0, paging.getMax())));
+		}
+		return page.size() > start ? page.subList(start, page.size()).stream() : Stream.empty();
 	}
 
-	@SneakyThrows
 	protected <T> List<T> all(File dir, Class<T> type, FilePaging paging) {
-		List<T> result = new LinkedList<>();
-		File[] ids = idManager.directory(entityRoot(dir, type), type, IFileIndex.IDS).listFiles();
-		if (ids != null) {
-			for (File f : ids) {
-				Object[] keys = Files.readAllLines(f.toPath()).toArray(new Object[0]);
-				try {
-					result.add(serializer.readValue(entityFile(dir, type, KeyParams.of(keys)), type));
-				} catch (Throwable e) {
-					log.error("Could not read object for keys: " + Arrays.toString(keys) + ", check file system.", e);
+		try (Stream<T> result = range(paging, entities(dir, type))) {
+			return result.collect(Collectors.toCollection(LinkedList::new));
+		}
+	}
+
+	/**
+	 * Objects that may match a search. When filter conditions are on
+	 * {@link FileIndexed} properties, only the intersection of their index
+	 * lookups is read, otherwise all objects are.
+	 */
+	protected <T> Stream<T> candidates(File dir, Class<T> type, SearchParams search) {
+		FileFilter filter = safeFilter(search);
+		List<FileCondition> conditions = filter != null ? filter.getConditions() : null;
+		if (conditions == null || conditions.isEmpty() || !EntityModel.of(type).isIndexed()) {
+			return entities(dir, type);
+		}
+		prepareIndexed(dir, type);
+		Map<String, Object[]> selected = null;
+		for (FileCondition c : conditions) {
+			Collection<Object[]> keys = propertyIndex.lookup(entityRoot(dir, type), type, c);
+			if (keys != null) {
+				Map<String, Object[]> current = new LinkedHashMap<>();
+				keys.forEach(k -> current.put(Arrays.toString(k), k));
+				if (selected != null) {
+					selected.keySet().retainAll(current.keySet());
+				} else {
+					selected = current;
 				}
 			}
 		}
-		return range(paging, result);
+		if (selected == null) {
+			return entities(dir, type);
+		}
+		log.debug("Indexed candidates: {}", selected.size());
+		return entities(dir, type, selected.values().stream());
+	}
+
+	protected <T> void prepareIndexed(File dir, Class<T> type) {
+		if (EntityModel.of(type).isIndexed() && propertyIndex.isStale(entityRoot(dir, type), type)) {
+			try (Stream<T> all = entities(dir, type)) {
+				propertyIndex.rebuild(entityRoot(dir, type), type, all);
+			}
+		}
+	}
+
+	/**
+	 * Lazy sequence of all objects of a type, in index order. Objects are only
+	 * read when the stream is consumed, and index resources are released when
+	 * the stream is closed.
+	 */
+	protected <T> Stream<T> entities(File dir, Class<T> type) {
+		return entities(dir, type, idManager.keys(entityRoot(dir, type), type));
+	}
+
+	/**
+	 * Objects for a sequence of keys, in the same order. With
+	 * <code>file.storage.list.parallel=true</code> keys are taken in batches
+	 * read by the {@link IFileExecutor}, otherwise one by one.
+	 */
+	protected <T> Stream<T> entities(File dir, Class<T> type, Stream<Object[]> keys) {
+		if (!(parallelList || executor.isVirtual()) || executor.getParallelism() <= 1) {
+			return keys.map(k -> entity(dir, type, k)).filter(Objects::nonNull);
+		}
+		Iterator<Object[]> source = keys.iterator();
+		int size = Math.max(1, parallelBatch);
+		Iterator<List<Object[]>> batches = new Iterator<List<Object[]>>() {
+			@Override
+			public boolean hasNext() {
+				return source.hasNext();
+			}
+
+			@Override
+			public List<Object[]> next() {
+				List<Object[]> batch = new ArrayList<>(size);
+				while (batch.size() < size && source.hasNext()) {
+					batch.add(source.next());
+				}
+				return batch;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED), false)//
+				.onClose(keys::close)//
+				.flatMap(b -> executor.map(b, k -> entity(dir, type, k)).stream())//
+				.filter(Objects::nonNull);
+	}
+
+	protected <T> T entity(File dir, Class<T> type, Object[] keys) {
+		try {
+			return serializer.readValue(entityFile(dir, type, KeyParams.of(keys)), type);
+		} catch (Throwable e) {
+			log.error("Could not read object for keys: " + Arrays.toString(keys) + ", check file system.", e);
+			return null;
+		}
 	}
 
-	@SuppressWarnings("unchecked")
 	protected <T> List<T> sort(FileSorting sorting, List<T> result) {
+		Comparator<T> sorter = sorter(sorting);
+		if (sorter != null) {
+			Collections.sort(result, sorter);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected <T> Comparator<T> sorter(FileSorting sorting) {
 		if (sorting != null) {
 			List<Comparator<T>> comparators = new LinkedList<>();
 			append(sorting, FileSorting::isValid, comparators);
@@ -433,10 +868,10 @@ public class FileStorageImpl implements IFileStorage {
 				}
 			}
 			if (!comparators.isEmpty()) {
-				Collections.sort(result, new ComparatorChain(comparators));
+				return new ComparatorChain(comparators);
 			}
 		}
-		return result;
+		return null;
 	}
 
 	protected <T> void append(FileSorting sorting, Predicate<FileSorting> test, List<Comparator<T>> list) {
@@ -461,8 +896,34 @@ public class FileStorageImpl implements IFileStorage {
 		return result;
 	}
 
+	protected <T> Stream<T> filter(FileFilter filter, Stream<T> result) {
+		Predicate<Object> p = filter(filter);
+		return p != null ? result.filter(p) : result;
+	}
+
 	protected Predicate<Object> filter(FileFilter filter) {
-		return filter == null ? null : filter.getFilter();
+		if (filter == null) {
+			return null;
+		}
+		Predicate<Object> result = filter.getFilter();
+		List<FileCondition> conditions = filter.getConditions();
+		if (conditions != null) {
+			for (FileCondition c : conditions) {
+				Predicate<Object> p = o -> c.test(conditionValue(o, c.getProperty()));
+				result = result != null ? result.and(p) : p;
+			}
+		}
+		return result;
+	}
+
+	protected Object conditionValue(Object instance, String property) {
+		try {
+			return PropertyAccessors.getNullSafeProperty(instance, property);
+		} catch (NoSuchMethodException e) {
+			throw new FileStoragePropertyNotFoundException(property, instance, e);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			throw new FileStorageException("Could not read property: " + property, e);
+		}
 	}
 
 	protected <T> List<T> range(FilePaging paging, List<T> result) {
@@ -472,16 +933,31 @@ public class FileStorageImpl implements IFileStorage {
 		return start < end ? result.subList(start, end) : Collections.emptyList();
 	}
 
+	protected <T> Stream<T> range(FilePaging paging, Stream<T> result) {
+		if (paging != null) {
+			if (paging.getStart() > 0) {
+				result = result.skip(paging.getStart());
+			}
+			if (paging.getMax() != null) {
+				result = result.limit(Math.max(0, paging.getMax()));
+			}
+		}
+		return result;
+	}
+
 	// +------------- PROPERTY METHODS ------------------+
 
 	@Override
 	@SneakyThrows
 	public <T> T setProperty(File dir, Class<T> type, KeyParams keys, String property, Object data) {
-		verifyExists(dir, type, keys);
+		open(dir);
+		try (IFileLocks.Hold hold = locks.write(entityDir(dir, type, keys))) {
+			verifyExists(dir, type, keys);
 
-		T current = read(dir, type, keys);
+			T current = read(dir, type, keys);
 
-		return setProperty(dir, type, property, data, current);
+			return setProperty(dir, type, property, data, current);
+		}
 	}
 
 	protected <T> void verifyExists(File dir, Class<T> type, KeyParams keys) {
@@ -503,14 +979,17 @@ public class FileStorageImpl implements IFileStorage {
 
 		trySetProperty(current, property, data);
 
-		return write(dir, current);
+		// preserved properties cannot change, current is its own previous version
+		return write(dir, type, current, current);
 	}
 
 	protected <A extends Annotation, T> void validateProperty(Class<A> annotation, Class<T> type, String property,
 			T current) {
-		PairValue<A>[] values = UtilAnnotations.getValues(annotation, type, current);
+		PairValue<A>[] values = EntityModel.of(type).values(annotation);
+		// nested paths cannot change them either
+		String name = property.split("[.\\[(]", 2)[0];
 		for (PairValue<A> c : values) {
-			if (c.getName().equalsIgnoreCase(property)) {
+			if (c.getName().equalsIgnoreCase(name)) {
 				throw new FileStorageException("Update of @" + annotation.getSimpleName() + " annotated property '"
 						+ c.getName() + "' is not allowed.", null);
 			}
@@ -520,7 +999,7 @@ public class FileStorageImpl implements IFileStorage {
 	protected <T> void trySetProperty(T current, String name, Object value)
 			throws IllegalAccessException, InvocationTargetException {
 		try {
-			PropertyUtils.setProperty(current, name, value);
+			PropertyAccessors.setProperty(current, name, value);
 		} catch (NoSuchMethodException e) {
 			throw new FileStoragePropertyNotFoundException(name, current, e);
 		}
@@ -533,8 +1012,15 @@ public class FileStorageImpl implements IFileStorage {
 
 		List<T> result = new ArrayList<>(list.size());
 
-		for (T current : list) {
-			result.add(setProperty(dir, type, property, data, current));
+		for (T item : list) {
+			KeyParams keys = KeyParams.of(UtilAnnotations.getKeys(type, item));
+			try (IFileLocks.Hold hold = locks.write(entityDir(dir, type, keys))) {
+				// the listed version may be outdated once locked
+				File file = entityFile(dir, type, keys);
+				if (file.exists()) {
+					result.add(setProperty(dir, type, property, data, read(file, type)));
+				}
+			}
 		}
 
 		return result;
@@ -543,6 +1029,7 @@ public class FileStorageImpl implements IFileStorage {
 	@Override
 	@SneakyThrows
 	public <T> Object getProperty(File dir, Class<T> type, KeyParams keys, String property) {
+		open(dir);
 		verifyExists(dir, type, keys);
 
 		T current = read(dir, type, keys);
@@ -553,7 +1040,7 @@ public class FileStorageImpl implements IFileStorage {
 	protected <T> Object tryGetProperty(T current, String property)
 			throws IllegalAccessException, InvocationTargetException {
 		try {
-			return PropertyUtils.getProperty(current, property);
+			return PropertyAccessors.getProperty(current, property);
 		} catch (NoSuchMethodException e) {
 			throw new FileStoragePropertyNotFoundException(property, current, e);
 		}
@@ -562,6 +1049,7 @@ public class FileStorageImpl implements IFileStorage {
 	@Override
 	@SneakyThrows
 	public <T> Map<String, Object> properties(File dir, Class<T> type, KeyParams keys, KeyParams names) {
+		open(dir);
 		verifyExists(dir, type, keys);
 
 		T current = read(dir, type, keys);
@@ -573,8 +1061,7 @@ public class FileStorageImpl implements IFileStorage {
 			throws IllegalAccessException, InvocationTargetException {
 		KeyParams selection = names;
 		if (selection == null) {
-			PropertyDescriptor[] pds = PropertyUtils.getPropertyDescriptors(current);
-			selection = KeyParams.of(Stream.of(pds).map(PropertyDescriptor::getName).collect(Collectors.toList()));
+			selection = KeyParams.of(new ArrayList<>(PropertyAccessors.accessors(current.getClass()).keySet()));
 		}
 
 		Map<String, Object> result = new LinkedHashMap<>();
@@ -602,21 +1089,22 @@ public class FileStorageImpl implements IFileStorage {
 	// +------------- RESOURCE METHODS ------------------+
 
 	protected <T> void initResources(File dir, Class<T> type, KeyParams keys) throws IOException {
-		File resourceDir = resourceDir(entityDir(dir, type, keys), type);
+		initResources(entityDir(dir, type, keys), type);
+	}
+
+	protected <T> void initResources(File entityDir, Class<T> type) throws IOException {
+		File resourceDir = resourceDir(entityDir, type);
 		if (!resourceDir.exists()) {
-			boolean created = resourceDir.mkdirs();
-			if (created) {
-				File keep = new File(resourceDir, ".keep");
-				Files.write(keep.toPath(), "Forcing directory existence.".getBytes(), StandardOpenOption.CREATE,
-						StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
-			}
-			log.info("Resources created={}", created);
+			writer.mkdirs(resourceDir);
+			writer.write(new File(resourceDir, ".keep"), "Forcing directory existence.".getBytes(StandardCharsets.UTF_8));
+			log.info("Resources created={}", true);
 		}
 	}
 
 	@Override
 	@SneakyThrows
 	public <T> File locationResource(File dir, Class<T> type, KeyParams keys, String path) {
+		open(dir);
 		verifyExists(dir, type, keys);
 		File root = resourceDir(entityDir(dir, type, keys), type);
 		if (path != null) {
@@ -635,31 +1123,33 @@ public class FileStorageImpl implements IFileStorage {
 	@Override
 	@SneakyThrows
 	public <T> T setResource(File dir, Class<T> type, KeyParams keys, Resource resource) {
-		verifyExists(dir, type, keys);
-		File root = resourceDir(entityDir(dir, type, keys), type);
+		open(dir);
+		try (IFileLocks.Hold hold = locks.write(entityDir(dir, type, keys))) {
+			verifyExists(dir, type, keys);
+			File root = resourceDir(entityDir(dir, type, keys), type);
 
-		ResourceMetadata metadata = resource.getMetadata();
-		String path = metadata.getPath();
-		File contentFile = new File(root, path);
-		verifySecurity(root, contentFile, path);
+			ResourceMetadata metadata = resource.getMetadata();
+			String path = metadata.getPath();
+			File contentFile = new File(root, path);
+			verifySecurity(root, contentFile, path);
+			verifyReserved(path);
 
-		FileUtils.prepare(contentFile);
-		Files.write(contentFile.toPath(), resource.getContent().getData(), StandardOpenOption.CREATE,
-				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			writer.mkdirs(contentFile.getParentFile());
+			writer.write(contentFile, resource.getContent().getData());
 
-		File metadataFile = resourceMeta(root, path, type);
-		FileUtils.prepare(metadataFile);
-		metadata.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(contentFile.lastModified()),
-				TimeZone.getDefault().toZoneId()));
-		Files.write(metadataFile.toPath(), serializer.encode(metadata).getBytes(), StandardOpenOption.CREATE,
-				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			File metadataFile = resourceMeta(root, path, type);
+			metadata.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(contentFile.lastModified()),
+					TimeZone.getDefault().toZoneId()));
+			writer.write(metadataFile, serializer.encode(metadata).getBytes(StandardCharsets.UTF_8));
 
-		// force change flags like revision and updated
-		T result = write(dir, type, read(dir, type, keys));
+			// force change flags like revision and updated
+			T current = read(dir, type, keys);
+			T result = write(dir, type, current, current);
 
-		log.info("Resource written: {}", metadata);
+			log.info("Resource written: {}", metadata);
 
-		return result;
+			return result;
+		}
 	}
 
 	protected File resourceDir(File entityDir, Class<?> type) {
@@ -667,34 +1157,32 @@ public class FileStorageImpl implements IFileStorage {
 	}
 
 	private String preffix(Class<?> type) {
-		if (type != null) {
-			FileName name = AnnotationUtils.findAnnotation(type, FileName.class);
-			if (name != null) {
-				return name.value();
-			}
-		}
-		return "data";
+		return type != null ? EntityModel.of(type).getFileName("data") : "data";
 	}
 
 	protected File resourceMeta(File entityDir, String path, Class<?> type) {
-		return new File(entityDir, path + "." + serializer.getFile(type));
+		return new File(entityDir, path + "." + serializer.getMetadataFile(type));
 	}
 
 	@Override
 	@SneakyThrows
 	public <T> Resource getResource(File dir, Class<T> type, KeyParams keys, String path) {
-		verifyExists(dir, type, keys);
-		File root = resourceDir(entityDir(dir, type, keys), type);
-		verifyResources(root, keys);
+		open(dir);
+		try (IFileLocks.Hold hold = locks.read(entityDir(dir, type, keys))) {
+			verifyExists(dir, type, keys);
+			File root = resourceDir(entityDir(dir, type, keys), type);
+			verifyResources(root, keys);
 
-		File contentFile = new File(root, path);
-		verifySecurity(root, contentFile, path);
-		verifyResourceExists(contentFile, path);
+			File contentFile = new File(root, path);
+			verifySecurity(root, contentFile, path);
+			verifyResourceExists(contentFile, path);
 
-		ResourceContent content = new ResourceContent(Files.readAllBytes(contentFile.toPath()));
-		File metadataFile = resourceMeta(root, path, type);
-		ResourceMetadata meta = serializer.decode(Files.readAllBytes(metadataFile.toPath()), ResourceMetadata.class);
-		return Resource.builder().metadata(meta).content(content).build();
+			ResourceContent content = new ResourceContent(Files.readAllBytes(contentFile.toPath()));
+			File metadataFile = resourceMeta(root, path, type);
+			ResourceMetadata meta = serializer.decode(Files.readAllBytes(metadataFile.toPath()),
+					ResourceMetadata.class);
+			return Resource.builder().metadata(meta).content(content).build();
+		}
 	}
 
 	protected void verifyResources(File root, KeyParams keys) {
@@ -710,6 +1198,16 @@ public class FileStorageImpl implements IFileStorage {
 		}
 	}
 
+	protected void verifyReserved(String path) {
+		for (String name : path.split("[/\\\\]")) {
+			if (IFileWriter.isTemporary(name)) {
+				throw new FileStorageException(
+						"Invalid resource path, names starting with '" + IFileWriter.TEMPORARY + "' are reserved: " + path,
+						null);
+			}
+		}
+	}
+
 	protected void verifyResourceExists(File contentFile, String path) {
 		if (!contentFile.exists()) {
 			throw new FileStorageResourceNotFoundException(path, null);
@@ -724,41 +1222,85 @@ public class FileStorageImpl implements IFileStorage {
 	@Override
 	@SneakyThrows
 	public <T> List<Resource> listResources(File dir, Class<T> type, KeyParams keys, SearchParams search) {
-		verifyExists(dir, type, keys);
-		File root = resourceDir(entityDir(dir, type, keys), type);
-		verifyResources(root, keys);
+		open(dir);
+		try (IFileLocks.Hold hold = locks.read(entityDir(dir, type, keys))) {
+			verifyExists(dir, type, keys);
+			File root = resourceDir(entityDir(dir, type, keys), type);
+			verifyResources(root, keys);
+
+			final Predicate<Object> predicate = filter(safeFilter(search));
+
+			List<Resource> result = new LinkedList<>();
+			for (Resource resource : executor.map(resourceFiles(root, type), f -> resource(f, type))) {
+				if (predicate == null || predicate.test(resource)) {
+					result.add(resource);
+				}
+			}
+			if (search == null || search.getSorting() == null) {
+				result.sort(new ComparatorNullSafe<>("metadata.path", false));
+			}
+			return range(safePaging(search), sort(safeSort(search), result));
+		}
+	}
 
-		final Predicate<Object> predicate = filter(safeFilter(search));
+	@Override
+	@SneakyThrows
+	public <T> Stream<Resource> streamResources(File dir, Class<T> type, KeyParams keys, SearchParams search) {
+		open(dir);
+		List<File> files;
+		Path base;
+		try (IFileLocks.Hold hold = locks.read(entityDir(dir, type, keys))) {
+			verifyExists(dir, type, keys);
+			File root = resourceDir(entityDir(dir, type, keys), type);
+			verifyResources(root, keys);
+
+			base = Paths.get(root.toURI());
+			files = resourceFiles(root, type);
+		}
+		// only paths are kept, contents are read on demand
+		files.sort(Comparator.comparing(f -> base.relativize(f.toPath()).toString().replace(File.separatorChar, '/')));
+		Stream<Resource> result = filter(safeFilter(search), files.stream().map(f -> resource(f, type)));
+		Comparator<Resource> sorter = sorter(safeSort(search));
+		FilePaging paging = safePaging(search);
+		if (sorter != null) {
+			if (isBounded(paging)) {
+				return top(result, sorter, paging);
+			}
+			result = result.sorted(sorter);
+		}
+		return range(paging, result);
+	}
 
-		List<Resource> result = new LinkedList<>();
-		final String ignoreFile = "." + serializer.getFile(type);
+	/**
+	 * Content files of resources, without reading them.
+	 */
+	protected <T> List<File> resourceFiles(File root, Class<T> type) throws IOException {
+		List<File> files = new ArrayList<>();
+		final String ignoreFile = "." + serializer.getMetadataFile(type);
 		Files.walkFileTree(Paths.get(root.toURI()), new SimpleFileVisitor<Path>() {
 			@Override
 			public FileVisitResult visitFile(Path contentFile, BasicFileAttributes attrs) throws IOException {
-				File file = contentFile.toFile();
-				String name = file.getName();
-				if (!name.endsWith(ignoreFile) && !name.equals(".keep")) {
-					File metadataFile = resourceMeta(file.getParentFile(), name, type);
-					log.info("Loading... {}", contentFile);
-					ResourceMetadata metadata = serializer.decode(Files.readAllBytes(metadataFile.toPath()),
-							ResourceMetadata.class);
-					ResourceContent content = ResourceContent.builder().data(Files.readAllBytes(contentFile)).build();
-					Resource resource = Resource.builder().metadata(metadata).content(content).build();
-					if (predicate != null) {
-						if (predicate.test(resource)) {
-							result.add(resource);
-						}
-					} else {
-						result.add(resource);
-					}
+				if (isResourceContent(contentFile.toFile().getName(), ignoreFile)) {
+					files.add(contentFile.toFile());
 				}
 				return FileVisitResult.CONTINUE;
 			}
 		});
-		if (search == null || search.getSorting() == null) {
-			result.sort(new ComparatorNullSafe<>("metadata.path", false));
-		}
-		return range(safePaging(search), sort(safeSort(search), result));
+		return files;
+	}
+
+	protected boolean isResourceContent(String name, String ignoreFile) {
+		return !name.endsWith(ignoreFile) && !name.equals(".keep") && !IFileWriter.isTemporary(name);
+	}
+
+	@SneakyThrows
+	protected <T> Resource resource(File contentFile, Class<T> type) {
+		File metadataFile = resourceMeta(contentFile.getParentFile(), contentFile.getName(), type);
+		log.info("Loading... {}", contentFile);
+		ResourceMetadata metadata = serializer.decode(Files.readAllBytes(metadataFile.toPath()),
+				ResourceMetadata.class);
+		ResourceContent content = ResourceContent.builder().data(Files.readAllBytes(contentFile.toPath())).build();
+		return Resource.builder().metadata(metadata).content(content).build();
 	}
 
 	protected FileFilter safeFilter(SearchParams search) {
@@ -776,25 +1318,29 @@ public class FileStorageImpl implements IFileStorage {
 	@Override
 	@SneakyThrows
 	public <T> T deleteResource(File dir, Class<T> type, KeyParams keys, String path) {
-		verifyExists(dir, type, keys);
-		File root = resourceDir(entityDir(dir, type, keys), type);
-		verifyResources(root, keys);
+		open(dir);
+		try (IFileLocks.Hold hold = locks.write(entityDir(dir, type, keys))) {
+			verifyExists(dir, type, keys);
+			File root = resourceDir(entityDir(dir, type, keys), type);
+			verifyResources(root, keys);
 
-		File contentFile = new File(root, path);
-		verifySecurity(root, contentFile, path);
-		verifyResourceExists(contentFile, path);
+			File contentFile = new File(root, path);
+			verifySecurity(root, contentFile, path);
+			verifyResourceExists(contentFile, path);
 
-		File metadataFile = resourceMeta(root, path, type);
+			File metadataFile = resourceMeta(root, path, type);
 
-		FileUtils.delete(contentFile);
-		FileUtils.delete(metadataFile);
+			writer.delete(contentFile);
+			writer.delete(metadataFile);
 
-		// force change flags like revision and updated
-		T result = write(dir, type, read(dir, type, keys));
+			// force change flags like revision and updated
+			T current = read(dir, type, keys);
+			T result = write(dir, type, current, current);
 
-		log.info("Resource deleted: {}", path);
+			log.info("Resource deleted: {}", path);
 
-		return result;
+			return result;
+		}
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,229 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import io.github.thiagolvlsantos.file.storage.IFileSerializer;
+import io.github.thiagolvlsantos.file.storage.IFileWal;
+import io.github.thiagolvlsantos.file.storage.IFileWriter;
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Write-ahead log in '.wal/wal.log' of each repository, enabled with
+ * <code>file.storage.wal.enabled=true</code>. Objects of an entry are saved
+ * by the serializer as '.wal/&lt;entry&gt;.&lt;n&gt;', then a begin line is
+ * appended and flushed as the writer durability requires; a commit line
+ * follows once applied. The first access to a repository redoes entries
+ * without commit, and the log is truncated once it has more than
+ * <code>file.storage.wal.compaction</code> lines and nothing pending.
+ * <p>
+ * The log is meant for a single process per repository: entries in flight
+ * are not told apart from entries of a crashed process, so a process opening
+ * a repository redoes the pending entries of any other process using it.
+ * Recoveries hold an exclusive lock on '.wal/wal.lock', so concurrent ones
+ * never interleave.
+ */
+@Component
+@Slf4j
+public class FileWalImpl implements IFileWal {
+
+	public static final String DIRECTORY = ".wal";
+
+	private static final String LOG = "wal.log";
+	private static final String LOCK = "wal.lock";
+	private static final String BEGIN = "begin";
+	private static final String COMMIT = "commit";
+
+	// file locks are held by the JVM, instances sharing a directory take turns
+	private static final Map<File, Object> RECOVERIES = new ConcurrentHashMap<>();
+
+	private @Autowired IFileWriter writer;
+	private @Value("${file.storage.wal.enabled:false}") boolean enabled;
+	private @Value("${file.storage.wal.compaction:1000}") long compaction = 1000;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final Map<File, Journal> journals = new ConcurrentHashMap<>();
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void recover(File dir, IFileSerializer serializer, Consumer<Entry> redo) {
+		if (enabled) {
+			journal(dir).recover(serializer, redo);
+		}
+	}
+
+	@Override
+	public Entry begin(File dir, Class<?> type, List<String> operations, List<?> objects,
+			IFileSerializer serializer) {
+		Journal journal = journal(dir);
+		String id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+		writer.mkdirs(journal.directory);
+		for (int i = 0; i < objects.size(); i++) {
+			serializer.writeValue(journal.payload(id, i), objects.get(i), writer);
+		}
+		ArrayNode line = mapper.createArrayNode().add(BEGIN).add(id).add(type.getName());
+		ArrayNode array = line.addArray();
+		operations.forEach(array::add);
+		journal.append(line);
+		writer.sync(Collections.singletonList(journal.lines.getFile()));
+		return new Entry(id, type, operations, new ArrayList<>(objects));
+	}
+
+	@Override
+	public void commit(File dir, Entry entry) {
+		Journal journal = journal(dir);
+		journal.append(mapper.createArrayNode().add(COMMIT).add(entry.getId()));
+		for (int i = 0; i < entry.getObjects().size(); i++) {
+			File payload = journal.payload(entry.getId(), i);
+			if (!payload.delete() && payload.exists()) {
+				log.warn("Could not remove log payload: {}", payload);
+			}
+		}
+		journal.compact();
+	}
+
+	private Journal journal(File dir) {
+		return journals.computeIfAbsent(new File(dir, DIRECTORY).getAbsoluteFile(), Journal::new);
+	}
+
+	private class Journal implements FileAppendLog.Replay {
+		private final File directory;
+		private final FileAppendLog lines;
+		private final Map<String, JsonNode> pending = new LinkedHashMap<>();
+		private volatile boolean recovered;
+		private boolean recovering;
+
+		Journal(File directory) {
+			this.directory = directory;
+			this.lines = new FileAppendLog(new File(directory, LOG), mapper, writer, this);
+		}
+
+		File payload(String id, int index) {
+			return new File(directory, id + "." + index);
+		}
+
+		synchronized void append(JsonNode line) {
+			lines.append(Collections.singletonList(line));
+		}
+
+		synchronized void compact() {
+			if (pending.isEmpty() && lines.getEntries() > compaction) {
+				lines.snapshot(() -> pending.isEmpty() ? Collections.emptyList() : null);
+			}
+		}
+
+		void recover(IFileSerializer serializer, Consumer<Entry> redo) {
+			if (recovered) {
+				return;
+			}
+			synchronized (this) {
+				// redo itself accesses the repository
+				if (recovered || recovering) {
+					return;
+				}
+				recovering = true;
+				try {
+					if (lines.exists()) {
+						synchronized (RECOVERIES.computeIfAbsent(directory, k -> new Object())) {
+							redo(serializer, redo);
+						}
+					}
+					recovered = true;
+				} finally {
+					recovering = false;
+				}
+			}
+		}
+
+		private void redo(IFileSerializer serializer, Consumer<Entry> redo) {
+			try (FileChannel channel = FileChannel.open(new File(directory, LOCK).toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+				lines.sync();
+				for (JsonNode line : new ArrayList<>(pending.values())) {
+					Entry entry = entry(line, serializer);
+					log.warn("Redoing: {}", entry);
+					redo.accept(entry);
+				}
+				lines.snapshot(Collections::emptyList);
+				clean();
+			} catch (IOException e) {
+				throw new FileStorageException("Could not lock log: " + directory, e);
+			}
+		}
+
+		private Entry entry(JsonNode line, IFileSerializer serializer) {
+			String id = line.get(1).asText();
+			Class<?> type = type(line.get(2).asText());
+			List<String> operations = new ArrayList<>();
+			List<Object> objects = new ArrayList<>();
+			for (JsonNode op : line.get(3)) {
+				File payload = payload(id, operations.size());
+				operations.add(op.asText());
+				objects.add(serializer.readValue(payload, type));
+			}
+			return new Entry(id, type, operations, objects);
+		}
+
+		private Class<?> type(String name) {
+			try {
+				return ClassUtils.forName(name, null);
+			} catch (ClassNotFoundException | LinkageError e) {
+				throw new FileStorageException("Could not load type of log entry: " + name, e);
+			}
+		}
+
+		// payloads of entries never begun
+		private void clean() {
+			File[] files = directory.listFiles();
+			if (files != null) {
+				for (File f : files) {
+					if (!f.getName().equals(LOG) && !f.getName().equals(LOG + FileAppendLog.LOCK)
+							&& !f.getName().equals(LOCK) && !f.delete()) {
+						log.warn("Could not remove log payload: {}", f);
+					}
+				}
+			}
+		}
+
+		@Override
+		public void apply(JsonNode line) {
+			String id = line.get(1).asText();
+			if (BEGIN.equals(line.get(0).asText())) {
+				pending.put(id, line);
+			} else {
+				pending.remove(id);
+			}
+		}
+
+		@Override
+		public void reset() {
+			pending.clear();
+		}
+	}
+}
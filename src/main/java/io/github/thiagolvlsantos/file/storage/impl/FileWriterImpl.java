@@ -0,0 +1,199 @@
+package io.github.thiagolvlsantos.file.storage.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.github.thiagolvlsantos.file.storage.IFileWriter;
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+import io.github.thiagolvlsantos.git.commons.file.FileUtils;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writer with durability set by <code>file.storage.durability</code>:
+ * <code>none</code>, <code>atomic</code> (default), <code>sync</code> or
+ * <code>group</code>. Atomic writes go to a hidden sibling
+ * '.~tmp.&lt;random&gt;', a name reserved for temporary files, moved over the
+ * target; sync also forces the temporary file before the move and the
+ * directory after it, as well as directories created or changed by deletes.
+ * Group appends writes, deletes and created directories to the journal
+ * <code>file.storage.durability.group.journal</code>, required and owned by
+ * one application, where a single flusher thread forces them once per batch
+ * of concurrent callers; it waits up to
+ * <code>file.storage.durability.group.wait</code> microseconds (default 0)
+ * for more work unless <code>file.storage.durability.group.batch</code>
+ * requests are already queued. The files changed are forced, and the journal
+ * emptied, once it passes <code>file.storage.durability.group.checkpoint</code>
+ * bytes and on shutdown.
+ */
+@Component
+@Slf4j
+public class FileWriterImpl implements IFileWriter {
+
+	private @Value("${file.storage.durability:atomic}") String durability = "atomic";
+
+	private @Value("${file.storage.durability.group.wait:0}") long groupWait;
+	private @Value("${file.storage.durability.group.batch:64}") int groupBatch = 64;
+	private @Value("${file.storage.durability.group.journal:}") String groupJournal = "";
+	private @Value("${file.storage.durability.group.checkpoint:16777216}") long groupCheckpoint = 16777216;
+
+	private Durability mode = Durability.ATOMIC;
+	private FileFlusher flusher;
+
+	@PostConstruct
+	public void configure() {
+		try {
+			mode = Durability.valueOf(durability.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new FileStorageException("Invalid durability: " + durability, e);
+		}
+		if (mode == Durability.GROUP && groupJournal.trim().isEmpty()) {
+			// a shared default would be locked by one application and replayed by another
+			throw new FileStorageException("Group durability requires file.storage.durability.group.journal", null);
+		}
+		if (mode == Durability.GROUP && flusher == null) {
+			flusher = new FileFlusher(this, new File(groupJournal), groupWait, groupBatch, groupCheckpoint);
+		}
+		log.info("Durability: {}", mode);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		if (flusher != null) {
+			flusher.stop();
+		}
+	}
+
+	@Override
+	public Durability getDurability() {
+		return mode;
+	}
+
+	@Override
+	public void write(File target, Content content) {
+		try {
+			if (mode == Durability.NONE) {
+				content.write(target);
+				return;
+			}
+			File tmp = temporary(target);
+			try {
+				content.write(tmp);
+				if (mode == Durability.GROUP) {
+					// the journal holds the content until the next checkpoint
+					flusher.write(tmp, target, Files.readAllBytes(tmp.toPath()));
+					return;
+				}
+				sync(Collections.singletonList(tmp));
+				move(tmp, target);
+			} finally {
+				Files.deleteIfExists(tmp.toPath());
+			}
+			sync(Collections.singletonList(target.getAbsoluteFile().getParentFile()));
+		} catch (IOException e) {
+			throw new FileStorageException("Could not write file: " + target, e);
+		}
+	}
+
+	@Override
+	public void mkdirs(File dir) {
+		List<File> created = new ArrayList<>();
+		for (File d = dir.getAbsoluteFile(); d != null && !d.exists(); d = d.getParentFile()) {
+			created.add(d);
+		}
+		if (created.isEmpty()) {
+			return;
+		}
+		if (!dir.mkdirs() && !dir.isDirectory()) {
+			throw new FileStorageException("Could not create directory: " + dir, null);
+		}
+		if (mode == Durability.GROUP) {
+			flusher.mkdirs(created);
+			return;
+		}
+		List<File> parents = new ArrayList<>(created.size());
+		for (File d : created) {
+			parents.add(d.getParentFile());
+		}
+		sync(parents);
+	}
+
+	@Override
+	public void delete(File file) {
+		try {
+			FileUtils.delete(file);
+		} catch (IOException e) {
+			throw new FileStorageException("Could not delete file: " + file, e);
+		}
+		if (mode == Durability.GROUP) {
+			flusher.delete(file);
+			return;
+		}
+		sync(Collections.singletonList(file.getAbsoluteFile().getParentFile()));
+	}
+
+	protected File temporary(File target) {
+		return new File(target.getParentFile(), TEMPORARY + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+	}
+
+	protected void move(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			log.warn("Atomic move not supported, replacing: {}", target);
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Files changed in place are not journaled, in group mode they are forced
+	 * as in sync mode.
+	 */
+	@Override
+	public void sync(Collection<File> files) {
+		if (mode == Durability.SYNC || mode == Durability.GROUP) {
+			files.forEach(this::force);
+		}
+	}
+
+	/**
+	 * Flush an open file to disk, with its metadata or only what reading it
+	 * back needs.
+	 */
+	protected void force(FileChannel channel, boolean metadata) throws IOException {
+		channel.force(metadata);
+	}
+
+	/**
+	 * Flush a file, or the entries of a directory, to disk.
+	 */
+	protected void force(File file) {
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				file.isDirectory() ? StandardOpenOption.READ : StandardOpenOption.WRITE)) {
+			channel.force(true);
+		} catch (IOException e) {
+			if (file.isDirectory()) {
+				// not every platform can open directories (Windows)
+				log.debug("Could not sync directory: {}", file);
+			} else {
+				throw new FileStorageException("Could not sync file: " + file, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package io.github.thiagolvlsantos.file.storage.search;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Structured condition on a property. When the property is annotated with
+ * {@link FileIndexed} the storage answers it from the index, otherwise it is
+ * evaluated against each object.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@SuperBuilder
+public class FileCondition {
+
+	public enum Operator {
+		EQ, IN, RANGE
+	}
+
+	private String property;
+	private Operator operator;
+	private Object value; // EQ
+	private List<Object> values; // IN
+	private Object from; // RANGE, null means unbounded
+	private Object to; // RANGE, null means unbounded
+	@Builder.Default
+	private boolean fromInclusive = true;
+	@Builder.Default
+	private boolean toInclusive = true;
+
+	public static FileCondition eq(String property, Object value) {
+		return FileCondition.builder().property(property).operator(Operator.EQ).value(value).build();
+	}
+
+	public static FileCondition in(String property, Object... values) {
+		return FileCondition.builder().property(property).operator(Operator.IN).values(Arrays.asList(values)).build();
+	}
+
+	public static FileCondition range(String property, Object from, Object to) {
+		return FileCondition.builder().property(property).operator(Operator.RANGE).from(from).to(to).build();
+	}
+
+	public boolean test(Object actual) {
+		switch (operator) {
+		case EQ:
+			return compare(actual, value) == 0;
+		case IN:
+			return values != null && values.stream().anyMatch(v -> compare(actual, v) == 0);
+		case RANGE:
+			if (actual == null) {
+				return false;
+			}
+			if (from != null) {
+				int c = compare(actual, from);
+				if (c < 0 || (c == 0 && !fromInclusive)) {
+					return false;
+				}
+			}
+			if (to != null) {
+				int c = compare(actual, to);
+				if (c > 0 || (c == 0 && !toInclusive)) {
+					return false;
+				}
+			}
+			return true;
+		default:
+			throw new IllegalArgumentException("Unsupported operator: " + operator);
+		}
+	}
+
+	/**
+	 * Order used by conditions and property indexes. Numbers are compared by
+	 * value whatever their class, NaN above infinity as in {@link Double}, enums
+	 * match their names and other mismatched types fall back to text
+	 * comparison. Nulls come first.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static int compare(Object a, Object b) {
+		if (a == b) {
+			return 0;
+		}
+		if (a == null) {
+			return -1;
+		}
+		if (b == null) {
+			return 1;
+		}
+		if (a instanceof Number && b instanceof Number) {
+			if (a.getClass() == b.getClass() && a instanceof Comparable) {
+				return ((Comparable) a).compareTo(b);
+			}
+			if (!isFinite((Number) a) || !isFinite((Number) b)) {
+				// NaN and infinities have no decimal value, ordered as Double does
+				return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+			}
+			return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+		}
+		if (a instanceof Enum || b instanceof Enum) {
+			return name(a).compareTo(name(b));
+		}
+		if (a instanceof Comparable && a.getClass().isInstance(b)) {
+			return ((Comparable) a).compareTo(b);
+		}
+		return String.valueOf(a).compareTo(String.valueOf(b));
+	}
+
+	private static boolean isFinite(Number n) {
+		return !(n instanceof Double || n instanceof Float) || Double.isFinite(n.doubleValue());
+	}
+
+	private static String name(Object o) {
+		return o instanceof Enum ? ((Enum<?>) o).name() : Objects.toString(o);
+	}
+}
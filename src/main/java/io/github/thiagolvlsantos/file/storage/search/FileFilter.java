@@ -1,5 +1,6 @@
 package io.github.thiagolvlsantos.file.storage.search;
 
+import java.util.List;
 import java.util.function.Predicate;
 
 import lombok.AllArgsConstructor;
@@ -17,4 +18,10 @@ import lombok.experimental.SuperBuilder;
 @SuperBuilder
 public class FileFilter {
 	private Predicate<Object> filter;
+	// structured conditions, answered by @FileIndexed indexes when possible
+	private List<FileCondition> conditions;
+
+	public FileFilter(Predicate<Object> filter) {
+		this.filter = filter;
+	}
 }
@@ -0,0 +1,36 @@
+package io.github.thiagolvlsantos.file.storage.util.accessor;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@AllArgsConstructor
+@ToString(onlyExplicitlyIncluded = true)
+public class PropertyAccessor {
+	@ToString.Include
+	private final String name;
+	@ToString.Include
+	private final Class<?> type;
+	private final Function<Object, Object> getter;
+	private final BiConsumer<Object, Object> setter;
+
+	public boolean isReadable() {
+		return getter != null;
+	}
+
+	public boolean isWritable() {
+		return setter != null;
+	}
+
+	public Object get(Object instance) {
+		return getter.apply(instance);
+	}
+
+	public void set(Object instance, Object value) {
+		setter.accept(instance, value);
+	}
+}
@@ -0,0 +1,266 @@
+package io.github.thiagolvlsantos.file.storage.util.accessor;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.NestedNullException;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.springframework.util.ClassUtils;
+
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Factory of compiled property accessors. Getters and setters are linked once
+ * per method with {@link LambdaMetafactory}, or with a cached
+ * {@link MethodHandle} when the declaring class cannot be linked from here,
+ * and then reused without reflection.
+ *
+ * Expressions not supported by the fast path (indexed, mapped, {@link Map}
+ * or {@link DynaBean} beans, also when reached through a nested path) are
+ * delegated to commons-beanutils, and so are values the compiled setter
+ * cannot take. Exceptions follow {@link PropertyUtils}: thrown by accessors
+ * they are wrapped in {@link InvocationTargetException}, for invalid values
+ * they are {@link IllegalArgumentException}.
+ */
+@UtilityClass
+@Slf4j
+public class PropertyAccessors {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private static final Map<Class<?>, Map<String, PropertyAccessor>> ACCESSORS = new ConcurrentHashMap<>();
+	private static final Map<Method, Function<Object, Object>> GETTERS = new ConcurrentHashMap<>();
+	private static final Map<Method, BiConsumer<Object, Object>> SETTERS = new ConcurrentHashMap<>();
+
+	public static Map<String, PropertyAccessor> accessors(Class<?> type) {
+		return ACCESSORS.computeIfAbsent(type, PropertyAccessors::introspect);
+	}
+
+	public static PropertyAccessor accessor(Class<?> type, String name) {
+		return accessors(type).get(name);
+	}
+
+	public static Function<Object, Object> getter(Method read) {
+		return read == null ? null : GETTERS.computeIfAbsent(read, PropertyAccessors::compileGetter);
+	}
+
+	public static BiConsumer<Object, Object> setter(Method write) {
+		return write == null ? null : SETTERS.computeIfAbsent(write, PropertyAccessors::compileSetter);
+	}
+
+	/**
+	 * Read a property, possibly nested using '.', from a bean.
+	 *
+	 * @param bean     the object.
+	 * @param property the property expression.
+	 * @return the property value.
+	 * @throws NoSuchMethodException if the property is not readable.
+	 */
+	public static Object getProperty(Object bean, String property)
+			throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+		if (isComplex(bean, property)) {
+			return PropertyUtils.getProperty(bean, property);
+		}
+		Object current = bean;
+		int start = 0;
+		int end;
+		while ((end = property.indexOf('.', start)) >= 0) {
+			current = read(current, property.substring(start, end), property);
+			if (current == null) {
+				throw new NestedNullException("Null property value for '" + property.substring(0, end) + "' on bean class '"
+						+ bean.getClass() + "'");
+			}
+			start = end + 1;
+			if (isMapped(current)) {
+				return PropertyUtils.getProperty(current, property.substring(start));
+			}
+		}
+		return read(current, property.substring(start), property);
+	}
+
+	/**
+	 * Same as {@link #getProperty(Object, String)} but returning
+	 * <code>null</code> when an intermediate value is <code>null</code>.
+	 */
+	public static Object getNullSafeProperty(Object bean, String property)
+			throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+		try {
+			return getProperty(bean, property);
+		} catch (NestedNullException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Write a simple property into a bean.
+	 *
+	 * @param bean     the object.
+	 * @param property the property expression.
+	 * @param value    the new value.
+	 * @throws NoSuchMethodException if the property is not writable.
+	 */
+	public static void setProperty(Object bean, String property, Object value)
+			throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+		if (isComplex(bean, property) || property.indexOf('.') >= 0) {
+			PropertyUtils.setProperty(bean, property, value);
+			return;
+		}
+		PropertyAccessor accessor = accessor(bean.getClass(), property);
+		if (accessor == null || !accessor.isWritable()) {
+			throw new NoSuchMethodException(
+					"Property '" + property + "' has no setter method in class '" + bean.getClass() + "'");
+		}
+		if (value == null && accessor.getType().isPrimitive()) {
+			// rejected with IllegalArgumentException
+			PropertyUtils.setProperty(bean, property, value);
+			return;
+		}
+		try {
+			accessor.set(bean, value);
+		} catch (ClassCastException e) {
+			// widening done by reflection, or rejected with IllegalArgumentException
+			PropertyUtils.setProperty(bean, property, value);
+		} catch (RuntimeException e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private static Object read(Object bean, String name, String property)
+			throws InvocationTargetException, NoSuchMethodException {
+		PropertyAccessor accessor = accessor(bean.getClass(), name);
+		if (accessor == null || !accessor.isReadable()) {
+			throw new NoSuchMethodException(
+					"Unknown property '" + name + "' of '" + property + "' on class '" + bean.getClass() + "'");
+		}
+		try {
+			return accessor.get(bean);
+		} catch (RuntimeException e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private static boolean isComplex(Object bean, String property) {
+		return isMapped(bean) || property.indexOf('[') >= 0 || property.indexOf('(') >= 0;
+	}
+
+	// not introspected, properties are entries
+	private static boolean isMapped(Object bean) {
+		return bean instanceof Map || bean instanceof DynaBean;
+	}
+
+	private static Map<String, PropertyAccessor> introspect(Class<?> type) {
+		try {
+			PropertyDescriptor[] pds = Introspector.getBeanInfo(type).getPropertyDescriptors();
+			Map<String, PropertyAccessor> result = new LinkedHashMap<>();
+			for (PropertyDescriptor pd : pds) {
+				Class<?> propertyType = pd.getPropertyType();
+				if (propertyType != null) {
+					result.put(pd.getName(), new PropertyAccessor(pd.getName(), propertyType,
+							getter(pd.getReadMethod()), setter(pd.getWriteMethod())));
+				}
+			}
+			return Collections.unmodifiableMap(result);
+		} catch (IntrospectionException e) {
+			throw new FileStorageException("Could not introspect type: " + type, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Function<Object, Object> compileGetter(Method read) {
+		Class<?> owner = read.getDeclaringClass();
+		try {
+			if (isLinkable(read)) {
+				MethodHandle target = LOOKUP.unreflect(read);
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", MethodType.methodType(Function.class),
+						MethodType.methodType(Object.class, Object.class), target,
+						MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(read.getReturnType()), owner));
+				return (Function<Object, Object>) site.getTarget().invoke();
+			}
+		} catch (Throwable e) {
+			log.debug("Could not link getter {}, using method handle.", read, e);
+		}
+		return handleGetter(read);
+	}
+
+	private static Function<Object, Object> handleGetter(Method read) {
+		final MethodHandle handle;
+		try {
+			read.setAccessible(true);
+			handle = LOOKUP.unreflect(read).asType(MethodType.methodType(Object.class, Object.class));
+		} catch (IllegalAccessException | RuntimeException e) {
+			throw new FileStorageException("Could not access getter: " + read, e);
+		}
+		return instance -> {
+			try {
+				return handle.invokeExact(instance);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new FileStorageException(e.getMessage(), e);
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static BiConsumer<Object, Object> compileSetter(Method write) {
+		Class<?> owner = write.getDeclaringClass();
+		try {
+			if (isLinkable(write)) {
+				MethodHandle target = LOOKUP.unreflect(write);
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+						MethodType.methodType(BiConsumer.class),
+						MethodType.methodType(void.class, Object.class, Object.class), target,
+						MethodType.methodType(void.class, owner,
+								ClassUtils.resolvePrimitiveIfNecessary(write.getParameterTypes()[0])));
+				return (BiConsumer<Object, Object>) site.getTarget().invoke();
+			}
+		} catch (Throwable e) {
+			log.debug("Could not link setter {}, using method handle.", write, e);
+		}
+		return handleSetter(write);
+	}
+
+	private static BiConsumer<Object, Object> handleSetter(Method write) {
+		final MethodHandle handle;
+		try {
+			write.setAccessible(true);
+			handle = LOOKUP.unreflect(write).asType(MethodType.methodType(void.class, Object.class, Object.class));
+		} catch (IllegalAccessException | RuntimeException e) {
+			throw new FileStorageException("Could not access setter: " + write, e);
+		}
+		return (instance, value) -> {
+			try {
+				handle.invokeExact(instance, value);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new FileStorageException(e.getMessage(), e);
+			}
+		};
+	}
+
+	private static boolean isLinkable(Method m) {
+		Class<?> owner = m.getDeclaringClass();
+		return Modifier.isPublic(m.getModifiers()) && Modifier.isPublic(owner.getModifiers())
+				&& !Modifier.isStatic(m.getModifiers())
+				&& ClassUtils.isVisible(owner, PropertyAccessors.class.getClassLoader());
+	}
+}
@@ -0,0 +1,147 @@
+package io.github.thiagolvlsantos.file.storage.util.collection;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive <code>long</code> keys to objects,
+ * avoiding a boxed key and an entry object per mapping. Values cannot be
+ * <code>null</code>. Not thread safe.
+ */
+public class LongObjectMap<V> {
+
+	private static final float LOAD = 0.6f;
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+	private int threshold;
+
+	public LongObjectMap() {
+		this(16);
+	}
+
+	public LongObjectMap(int expected) {
+		allocate(capacity(expected));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(long key) {
+		return values[find(key)] != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		return (V) values[find(key)];
+	}
+
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Null values are not supported.");
+		}
+		int i = find(key);
+		Object old = values[i];
+		keys[i] = key;
+		values[i] = value;
+		if (old == null && ++size > threshold) {
+			rehash(keys.length << 1);
+		}
+		return (V) old;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int i = find(key);
+		Object old = values[i];
+		if (old == null) {
+			return null;
+		}
+		values[i] = null;
+		size--;
+		// backward shift, so probing never needs tombstones
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (values[j] == null) {
+				break;
+			}
+			int k = slot(keys[j]);
+			if ((j > i && (k <= i || k > j)) || (j < i && k <= i && k > j)) {
+				keys[i] = keys[j];
+				values[i] = values[j];
+				values[j] = null;
+				i = j;
+			}
+		}
+		return (V) old;
+	}
+
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * @return the keys in ascending order.
+	 */
+	public long[] keys() {
+		long[] result = new long[size];
+		int n = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				result[n++] = keys[i];
+			}
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	private int find(long key) {
+		int i = slot(key);
+		while (values[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int j = find(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		threshold = (int) (capacity * LOAD);
+	}
+
+	private static int capacity(int expected) {
+		int capacity = 16;
+		while (capacity * LOAD < expected) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+}
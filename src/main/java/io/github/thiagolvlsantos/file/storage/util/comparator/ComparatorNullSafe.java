@@ -3,10 +3,8 @@ package io.github.thiagolvlsantos.file.storage.util.comparator;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Comparator;
 
-import org.apache.commons.beanutils.NestedNullException;
-import org.apache.commons.beanutils.PropertyUtils;
-
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
+import io.github.thiagolvlsantos.file.storage.util.accessor.PropertyAccessors;
 
 public class ComparatorNullSafe<T> implements Comparator<T> {
 
@@ -55,12 +53,6 @@ public class ComparatorNullSafe<T> implements Comparator<T> {
 
 	protected Object getNullSafeProperty(Object o1, String property)
 			throws IllegalAccessException, InvocationTargetException, NoSuchMethodException {
-		Object val;
-		try {
-			val = PropertyUtils.getProperty(o1, property);
-		} catch (NestedNullException ex) {
-			val = null;
-		}
-		return val;
+		return PropertyAccessors.getNullSafeProperty(o1, property);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package io.github.thiagolvlsantos.file.storage.util.comparator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+/**
+ * Bounded selection of the first <code>k</code> elements according to a
+ * comparator. Only <code>k</code> candidates are kept while the input is
+ * consumed, so memory is O(k) and time O(n log k). Ties keep encounter order,
+ * as a stable sort would.
+ */
+public class ComparatorTopK<T> {
+
+	private final Comparator<? super T> comparator;
+	private final int k;
+	private final PriorityQueue<Entry<T>> heap;
+	private long sequence;
+
+	public ComparatorTopK(Comparator<? super T> comparator, int k) {
+		this.comparator = comparator;
+		this.k = k;
+		// worst candidate on top
+		this.heap = new PriorityQueue<>(Math.max(1, Math.min(k, 1024)), this::compare);
+	}
+
+	public static <T> Collector<T, ComparatorTopK<T>, List<T>> collector(Comparator<? super T> comparator, int k) {
+		return Collector.of(() -> new ComparatorTopK<>(comparator, k), ComparatorTopK::add, ComparatorTopK::merge,
+				ComparatorTopK::result);
+	}
+
+	public void add(T value) {
+		offer(new Entry<>(value, sequence++));
+	}
+
+	private void offer(Entry<T> entry) {
+		if (k <= 0) {
+			return;
+		}
+		if (heap.size() < k) {
+			heap.add(entry);
+		} else if (compare(entry, heap.peek()) > 0) {
+			heap.poll();
+			heap.add(entry);
+		}
+	}
+
+	public ComparatorTopK<T> merge(ComparatorTopK<T> other) {
+		for (Entry<T> e : other.heap) {
+			offer(new Entry<>(e.value, sequence + e.sequence));
+		}
+		sequence += other.sequence;
+		return this;
+	}
+
+	public List<T> result() {
+		List<Entry<T>> entries = new ArrayList<>(heap);
+		entries.sort((a, b) -> -compare(a, b));
+		List<T> result = new ArrayList<>(entries.size());
+		for (Entry<T> e : entries) {
+			result.add(e.value);
+		}
+		return result;
+	}
+
+	// reversed order: greater means better ranked
+	private int compare(Entry<T> a, Entry<T> b) {
+		int c = comparator.compare(b.value, a.value);
+		return c != 0 ? c : Long.compare(b.sequence, a.sequence);
+	}
+
+	private static class Entry<T> {
+		private final T value;
+		private final long sequence;
+
+		Entry(T value, long sequence) {
+			this.value = value;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -7,37 +7,85 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import org.apache.commons.beanutils.LazyDynaBean;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import io.github.thiagolvlsantos.file.storage.annotations.EntityModel;
+import io.github.thiagolvlsantos.file.storage.annotations.PairValue;
+import io.github.thiagolvlsantos.file.storage.annotations.UtilAnnotations;
 import io.github.thiagolvlsantos.file.storage.audit.IFileAudit;
 import io.github.thiagolvlsantos.file.storage.entity.FileRepo;
+import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageConcurrencyException;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageException;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageNotFoundException;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStoragePropertyNotFoundException;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageResourceNotFoundException;
 import io.github.thiagolvlsantos.file.storage.exceptions.FileStorageSecurityException;
+import io.github.thiagolvlsantos.file.storage.impl.FileExecutorImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FileIndexImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FileIndexSegmentImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FileLocksImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FilePropertyIndexImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FileSerializerCachedImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FileSerializerImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FileStorageAsyncImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FileStorageImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FileWalImpl;
+import io.github.thiagolvlsantos.file.storage.impl.FileWriterImpl;
 import io.github.thiagolvlsantos.file.storage.objects.InvalidRevision;
+import io.github.thiagolvlsantos.file.storage.objects.ObjectAttributes;
 import io.github.thiagolvlsantos.file.storage.objects.ObjectMeta;
 import io.github.thiagolvlsantos.file.storage.objects.ObjectOther;
 import io.github.thiagolvlsantos.file.storage.objects.ObjectWrapped;
 import io.github.thiagolvlsantos.file.storage.objects.Outlier;
 import io.github.thiagolvlsantos.file.storage.objects.OutlierStorage;
+import io.github.thiagolvlsantos.file.storage.objects.Product;
+import io.github.thiagolvlsantos.file.storage.objects.ProductAlias;
 import io.github.thiagolvlsantos.file.storage.objects.Project;
+import io.github.thiagolvlsantos.file.storage.objects.ProjectAlias;
 import io.github.thiagolvlsantos.file.storage.objects.ProjectStorage;
+import io.github.thiagolvlsantos.file.storage.objects.ProjectStorageAsync;
+import io.github.thiagolvlsantos.file.storage.objects.Release;
 import io.github.thiagolvlsantos.file.storage.objects.SubProject;
 import io.github.thiagolvlsantos.file.storage.objects.Target;
 import io.github.thiagolvlsantos.file.storage.objects.TargetAlias;
@@ -48,9 +96,11 @@ import io.github.thiagolvlsantos.file.storage.objects.TemplateTargetAuthorizatio
 import io.github.thiagolvlsantos.file.storage.resource.Resource;
 import io.github.thiagolvlsantos.file.storage.resource.ResourceContent;
 import io.github.thiagolvlsantos.file.storage.resource.ResourceMetadata;
+import io.github.thiagolvlsantos.file.storage.search.FileCondition;
 import io.github.thiagolvlsantos.file.storage.search.FileFilter;
 import io.github.thiagolvlsantos.file.storage.search.FilePaging;
 import io.github.thiagolvlsantos.file.storage.search.FileSorting;
+import io.github.thiagolvlsantos.file.storage.util.accessor.PropertyAccessors;
 import io.github.thiagolvlsantos.git.commons.file.FileUtils;
 
 @SpringBootTest
@@ -1852,4 +1902,1392 @@ class FileStorageApplicationTests {
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testEntityModel() {
+		EntityModel model = EntityModel.of(Product.class);
+		assertThat(EntityModel.of(Product.class)).isSameAs(model);
+		assertThat(model.getRepo().value()).isEqualTo(Product.REPO);
+		assertThat(Stream.of(model.getKeys()).map(PairValue::getName)).containsExactly("project", "name");
+		assertThat(Stream.of(model.getIds()).map(PairValue::getName)).containsExactly("id");
+		assertThat(Stream.of(model.getRevisions()).map(PairValue::getName)).containsExactly("revision");
+		assertThat(Stream.of(model.getChanged()).map(PairValue::getName)).containsExactly("changed");
+
+		Product product = Product.builder().name("productA")
+				.project(ProjectAlias.builder().name("projectA").build()).build();
+		assertThat(UtilAnnotations.getKeys(Product.class, product)).containsExactly("projectA", "productA");
+	}
+
+	@Test
+	void testPropertyAccessors() throws Exception {
+		Project project = Project.builder().name("projectA").parent(ProjectAlias.builder().name("parent").build())
+				.build();
+
+		assertThat(PropertyAccessors.getProperty(project, "name")).isEqualTo("projectA");
+		assertThat(PropertyAccessors.getProperty(project, "parent.name")).isEqualTo("parent");
+		assertThat(PropertyAccessors.getProperty(project, "class")).isEqualTo(Project.class);
+
+		PropertyAccessors.setProperty(project, "description", "text");
+		assertThat(project.getDescription()).isEqualTo("text");
+
+		project.setParent(null);
+		assertThat(PropertyAccessors.getNullSafeProperty(project, "parent.name")).isNull();
+
+		assertThatThrownBy(() -> PropertyAccessors.getProperty(project, "invalid"))
+				.isExactlyInstanceOf(NoSuchMethodException.class);
+		assertThatThrownBy(() -> PropertyAccessors.setProperty(project, "invalid", "any"))
+				.isExactlyInstanceOf(NoSuchMethodException.class);
+		assertThatThrownBy(() -> PropertyAccessors.setProperty(project, "description", 10))
+				.isExactlyInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void testPropertyAccessorsMapped(@Autowired ApplicationContext context) throws Exception {
+		ObjectAttributes object = ObjectAttributes.builder().name("attributed").build();
+		object.getAttributes().put("key", "value");
+		LazyDynaBean dyna = new LazyDynaBean();
+		dyna.set("name", "dyna");
+		object.getAttributes().put("dyna", dyna);
+
+		// through Map and DynaBean intermediates
+		assertThat(PropertyAccessors.getProperty(object, "attributes.key")).isEqualTo("value");
+		assertThat(PropertyAccessors.getProperty(object, "attributes.dyna.name")).isEqualTo("dyna");
+		PropertyAccessors.setProperty(object, "attributes.key", "other");
+		PropertyAccessors.setProperty(object, "attributes.dyna.name", "changed");
+		assertThat(object.getAttributes().get("key")).isEqualTo("other");
+		assertThat(dyna.get("name")).isEqualTo("changed");
+
+		// same contract of PropertyUtils
+		assertThatThrownBy(() -> PropertyAccessors.setProperty(object, "priority", null))
+				.isExactlyInstanceOf(IllegalArgumentException.class);
+		PropertyAccessors.setProperty(object, "priority", (short) 2);
+		assertThat(object.getPriority()).isEqualTo(2);
+		assertThatThrownBy(() -> PropertyAccessors.getProperty(new Object() {
+			@SuppressWarnings("unused")
+			public String getFailure() {
+				throw new IllegalStateException("failure");
+			}
+		}, "failure")).isExactlyInstanceOf(InvocationTargetException.class)
+				.hasCauseExactlyInstanceOf(IllegalStateException.class);
+
+		IFileStorage storage = context.getBean(IFileStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			object.getAttributes().remove("dyna");
+			storage.write(dir, object);
+			KeyParams keys = KeyParams.of("attributed");
+			storage.setProperty(dir, ObjectAttributes.class, keys, "attributes.key", "stored");
+			assertThat(storage.getProperty(dir, ObjectAttributes.class, keys, "attributes.key")).isEqualTo("stored");
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testStream(@Autowired ApplicationContext context) {
+		IFileStorage storage = context.getBean(IFileStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			for (int i = 0; i < 5; i++) {
+				storage.write(dir, Project.builder().name("project" + i).description(i % 2 == 0 ? "even" : "odd").build());
+			}
+			FileFilter even = new FileFilter(o -> "even".equals(((Project) o).getDescription()));
+
+			try (Stream<Project> stream = storage.stream(dir, Project.class, null)) {
+				assertThat(stream.count()).isEqualTo(5);
+			}
+			try (Stream<Project> stream = storage.stream(dir, Project.class,
+					SearchParams.builder().filter(even).paging(FilePaging.builder().max(2).build()).build())) {
+				assertThat(stream.map(Project::getDescription)).containsExactly("even", "even");
+			}
+			try (Stream<Project> stream = storage.stream(dir, Project.class,
+					SearchParams.builder().paging(FilePaging.builder().skip(1).max(10).build())
+							.sorting(FileSorting.builder().property("name").sort(FileSorting.SORT_DESCENDING).build())
+							.build())) {
+				assertThat(stream.map(Project::getName)).containsExactly("project3", "project2", "project1", "project0");
+			}
+			assertThat(storage.count(dir, Project.class, SearchParams.builder().filter(even).build())).isEqualTo(3);
+			assertThat(storage.count(dir, Project.class,
+					SearchParams.builder().filter(even).paging(FilePaging.builder().skip(2).build()).build()))
+					.isEqualTo(1);
+			assertThat(storage.count(dir, Template.class, null)).isZero();
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testStreamTyped(@Autowired ApplicationContext context) {
+		IFileStorageTyped<Project> storage = context.getBean(ProjectStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			for (int i = 0; i < 3; i++) {
+				storage.write(dir, Project.builder().name("project" + i).build());
+			}
+			try (Stream<Project> stream = storage.stream(dir, SearchParams.builder()
+					.sorting(FileSorting.builder().property("name").sort(FileSorting.SORT_ASCENDING).build()).build())) {
+				assertThat(stream.map(Project::getName)).containsExactly("project0", "project1", "project2");
+			}
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testSortedPage(@Autowired ApplicationContext context) {
+		IFileStorage storage = context.getBean(IFileStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			for (int i = 0; i < 20; i++) {
+				storage.write(dir, Project.builder().name("project" + i).description("group" + (i % 3)).build());
+			}
+			FileSorting sorting = FileSorting.builder().property("description").sort(FileSorting.SORT_DESCENDING)
+					.build();
+			List<String> all = storage.list(dir, Project.class, SearchParams.builder().sorting(sorting).build())
+					.stream().map(Project::getName).collect(Collectors.toList());
+			for (int skip = 0; skip < 22; skip += 5) {
+				List<String> page = storage
+						.list(dir, Project.class,
+								SearchParams.builder().sorting(sorting)
+										.paging(FilePaging.builder().skip(skip).max(7).build()).build())
+						.stream().map(Project::getName).collect(Collectors.toList());
+				assertThat(page).isEqualTo(all.subList(Math.min(skip, all.size()), Math.min(skip + 7, all.size())));
+			}
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testIndexed(@Autowired ApplicationContext context) throws IOException {
+		IFileStorage storage = context.getBean(IFileStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			for (int i = 0; i < 10; i++) {
+				storage.write(dir, Release.builder().name("release" + i)
+						.status(i % 2 == 0 ? Release.Status.ACTIVE : Release.Status.DRAFT).priority(i).build());
+			}
+			File index = new File(dir, "@" + Release.REPO + "/.index/.data.indexed.status");
+			assertThat(index).exists();
+
+			Function<FileCondition[], List<String>> names = conditions -> storage
+					.list(dir, Release.class,
+							SearchParams.builder().filter(
+									FileFilter.builder().conditions(Arrays.asList(conditions)).build())
+									.sorting(FileSorting.builder().property("name").sort(FileSorting.SORT_ASCENDING)
+											.build())
+									.build())
+					.stream().map(Release::getName).collect(Collectors.toList());
+
+			assertThat(names.apply(new FileCondition[] { FileCondition.eq("status", "ACTIVE") }))
+					.containsExactly("release0", "release2", "release4", "release6", "release8");
+			assertThat(names.apply(new FileCondition[] { FileCondition.eq("status", Release.Status.ACTIVE),
+					FileCondition.range("priority", 3, 6) })).containsExactly("release4", "release6");
+			assertThat(names.apply(new FileCondition[] { FileCondition.in("priority", 1L, 9L) }))
+					.containsExactly("release1", "release9");
+			assertThat(names.apply(new FileCondition[] { FileCondition.eq("description", null),
+					FileCondition.range("priority", null, 1) })).containsExactly("release0", "release1");
+
+			storage.setProperty(dir, Release.class, KeyParams.of("release1"), "status", Release.Status.ACTIVE);
+			storage.delete(dir, Release.class, KeyParams.of("release0"));
+			assertThat(names.apply(new FileCondition[] { FileCondition.eq("status", "ACTIVE") }))
+					.containsExactly("release1", "release2", "release4", "release6", "release8");
+
+			// lost indexes are rebuilt from objects
+			Files.delete(index.toPath());
+			assertThat(names.apply(new FileCondition[] { FileCondition.eq("status", "DRAFT") }))
+					.containsExactly("release3", "release5", "release7", "release9");
+			assertThat(index).exists();
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testIndexedNotFinite(@Autowired ApplicationContext context) throws IOException {
+		IFileStorage storage = context.getBean(IFileStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			double[] scores = { 0.5, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 2.0 };
+			for (int i = 0; i < scores.length; i++) {
+				storage.write(dir, Release.builder().name("release" + i).score(scores[i]).build());
+			}
+
+			// bounds of other number types are compared with NaN and infinities too
+			Function<FileCondition, List<String>> names = condition -> storage
+					.list(dir, Release.class,
+							SearchParams.builder()
+									.filter(FileFilter.builder().conditions(Arrays.asList(condition)).build())
+									.sorting(FileSorting.builder().property("name").sort(FileSorting.SORT_ASCENDING)
+											.build())
+									.build())
+					.stream().map(Release::getName).collect(Collectors.toList());
+			assertThat(names.apply(FileCondition.range("score", 0, 3))).containsExactly("release0", "release4");
+			assertThat(names.apply(FileCondition.range("score", null, 0L))).containsExactly("release3");
+			assertThat(names.apply(FileCondition.eq("score", Double.NaN))).containsExactly("release1");
+			assertThat(names.apply(FileCondition.eq("score", Double.POSITIVE_INFINITY)))
+					.containsExactly("release2");
+			assertThat(storage.read(dir, Release.class, KeyParams.of("release1")).getScore()).isNaN();
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testIndexedReplaced(@Autowired ApplicationContext context) throws IOException {
+		AutowireCapableBeanFactory factory = context.getAutowireCapableBeanFactory();
+		FilePropertyIndexImpl index = factory.createBean(FilePropertyIndexImpl.class);
+		ReflectionTestUtils.setField(index, "compaction", 4L);
+		FilePropertyIndexImpl other = factory.createBean(FilePropertyIndexImpl.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		Function<Integer, Release> release = i -> Release.builder().name("release" + i)
+				.status(i < 5 ? Release.Status.ACTIVE : Release.Status.DRAFT).priority(i).build();
+		Supplier<List<Object>> active = () -> other.lookup(dir, Release.class, FileCondition.eq("status", "ACTIVE"))
+				.stream().map(k -> k[0]).collect(Collectors.toList());
+		try {
+			for (int i = 0; i < 5; i++) {
+				index.update(dir, Release.class, release.apply(i));
+			}
+			assertThat(active.get()).hasSize(5);
+
+			// compacted by one instance, then grown past what the other read
+			for (int round = 0; round < 2; round++) {
+				for (int i = 0; i < 5; i++) {
+					Release r = release.apply(i);
+					r.setStatus(Release.Status.DRAFT);
+					index.update(dir, Release.class, r);
+				}
+			}
+			for (int i = 5; i < 10; i++) {
+				Release r = release.apply(i);
+				r.setStatus(Release.Status.ACTIVE);
+				index.update(dir, Release.class, r);
+			}
+			assertThat(Files.readAllLines(new File(dir, ".index/.data.indexed.status").toPath())).hasSizeLessThan(21);
+			assertThat(active.get()).containsExactlyInAnyOrder("release5", "release6", "release7", "release8",
+					"release9");
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testIndexSegment(@Autowired ApplicationContext context) throws IOException {
+		IFileStorage files = context.getBean(IFileStorage.class);
+		AutowireCapableBeanFactory factory = context.getAutowireCapableBeanFactory();
+		FileIndexSegmentImpl index = factory.createBean(FileIndexSegmentImpl.class);
+		FileStorageImpl storage = factory.createBean(FileStorageImpl.class);
+		ReflectionTestUtils.setField(storage, "idManager", index);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			for (int i = 0; i < 3; i++) {
+				files.write(dir, Project.builder().name("project" + i).build());
+			}
+
+			// migrated on first access
+			File root = new File(dir, "@projects");
+			assertThat(storage.list(dir, Project.class, null).stream().map(Project::getName))
+					.containsExactly("project0", "project1", "project2");
+			assertThat(new File(root, ".index/.data.segment")).exists();
+			assertThat(new File(root, ".index/.data.ids")).doesNotExist();
+
+			Project project = storage.write(dir, Project.builder().name("project3").build());
+			assertThat(project.getId()).isEqualTo(4L);
+			storage.delete(dir, Project.class, KeyParams.of("project1"));
+			assertThat(storage.count(dir, Project.class, null)).isEqualTo(3L);
+
+			// reloaded from segment
+			FileIndexSegmentImpl other = factory.createBean(FileIndexSegmentImpl.class);
+			assertThat(other.keys(root, Project.class).map(k -> k[0]))
+					.containsExactly("project0", "project2", "project3");
+			assertThat(other.migrate(root, Project.class)).isEqualTo(3L);
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testIndexSegmentReplaced(@Autowired ApplicationContext context) throws IOException {
+		AutowireCapableBeanFactory factory = context.getAutowireCapableBeanFactory();
+		FileIndexSegmentImpl index = factory.createBean(FileIndexSegmentImpl.class);
+		ReflectionTestUtils.setField(index, "compaction", 4L);
+		FileIndexSegmentImpl other = factory.createBean(FileIndexSegmentImpl.class);
+		File root = new File("target/data/storage_" + System.currentTimeMillis(), "@projects");
+		Function<Long, Project> project = i -> Project.builder().id(i).name("project" + i).build();
+		try {
+			for (long i = 1; i <= 5; i++) {
+				index.bind(root, project.apply(i));
+			}
+			assertThat(other.keys(root, Project.class)).hasSize(5);
+
+			// compacted by one instance, then grown past what the other read
+			for (long i = 1; i <= 4; i++) {
+				index.unbind(root, project.apply(i));
+			}
+			for (long i = 6; i <= 12; i++) {
+				index.bind(root, project.apply(i));
+			}
+			assertThat(Files.readAllLines(new File(root, ".index/.data.segment").toPath())).hasSize(9);
+			assertThat(other.keys(root, Project.class).map(k -> k[0])).containsExactly("project5", "project6",
+					"project7", "project8", "project9", "project10", "project11", "project12");
+		} finally {
+			try {
+				FileUtils.delete(root.getParentFile());
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testIndexCompactedWhileAppended(@Autowired ApplicationContext context) throws Exception {
+		AutowireCapableBeanFactory factory = context.getAutowireCapableBeanFactory();
+		FileIndexSegmentImpl segment = factory.createBean(FileIndexSegmentImpl.class);
+		ReflectionTestUtils.setField(segment, "compaction", 4L);
+		FileIndexSegmentImpl segmentOther = factory.createBean(FileIndexSegmentImpl.class);
+		FilePropertyIndexImpl indexed = factory.createBean(FilePropertyIndexImpl.class);
+		ReflectionTestUtils.setField(indexed, "compaction", 4L);
+		FilePropertyIndexImpl indexedOther = factory.createBean(FilePropertyIndexImpl.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		File root = new File(dir, "@projects");
+		Function<Long, Project> project = i -> Project.builder().id(i).name("project" + i).build();
+		Function<Integer, Release> release = i -> Release.builder().name("release" + i)
+				.status(Release.Status.ACTIVE).priority(i).build();
+		int count = 200;
+		try {
+			// one instance compacts over and over while the other appends
+			CompletableFuture<Void> compacting = CompletableFuture.runAsync(() -> {
+				for (long i = 0; i < count; i++) {
+					segment.bind(root, project.apply(1000 + i));
+					segment.unbind(root, project.apply(1000 + i));
+					Release r = Release.builder().name("churn").priority(0).build();
+					r.setStatus(i % 2 == 0 ? Release.Status.ACTIVE : Release.Status.DRAFT);
+					indexed.update(dir, Release.class, r);
+				}
+			});
+			for (int i = 0; i < count; i++) {
+				segmentOther.bind(root, project.apply((long) i));
+				indexedOther.update(dir, Release.class, release.apply(i));
+			}
+			compacting.get(60, TimeUnit.SECONDS);
+			Release churn = Release.builder().name("churn").status(Release.Status.DRAFT).priority(0).build();
+			indexed.update(dir, Release.class, churn);
+
+			assertThat(factory.createBean(FileIndexSegmentImpl.class).keys(root, Project.class).map(k -> k[0]))
+					.containsExactlyInAnyOrderElementsOf(IntStream.range(0, count).mapToObj(i -> "project" + i)
+							.collect(Collectors.toList()));
+			assertThat(factory.createBean(FilePropertyIndexImpl.class)
+					.lookup(dir, Release.class, FileCondition.eq("status", "ACTIVE")).stream().map(k -> k[0]))
+					.containsExactlyInAnyOrderElementsOf(IntStream.range(0, count).mapToObj(i -> "release" + i)
+							.collect(Collectors.toList()));
+			try (Stream<Path> files = Files.walk(dir.toPath())) {
+				assertThat(files.map(f -> f.getFileName().toString()).filter(IFileWriter::isTemporary)).isEmpty();
+			}
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testIdBlocks() throws Exception {
+		FileIndexImpl index = new FileIndexImpl();
+		ReflectionTestUtils.setField(index, "block", 10);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			List<Object> ids = Collections.synchronizedList(new ArrayList<>());
+			Thread[] threads = new Thread[4];
+			for (int i = 0; i < threads.length; i++) {
+				threads[i] = new Thread(() -> {
+					for (int j = 0; j < 25; j++) {
+						ids.add(index.next(dir, Project.class, null));
+					}
+				});
+				threads[i].start();
+			}
+			for (Thread t : threads) {
+				t.join();
+			}
+			assertThat(ids).hasSize(100).doesNotHaveDuplicates().allMatch(id -> (Long) id >= 1 && (Long) id <= 100);
+			assertThat(index.next(new File(dir, "other"), Product.class, null)).isEqualTo(1L);
+			File current = new File(dir, ".index/.data.current");
+			assertThat(Files.readString(current.toPath())).isEqualTo("100");
+
+			// unused ids of a reserved block are skipped after restart
+			index.next(dir, Project.class, null);
+			FileIndexImpl other = new FileIndexImpl();
+			assertThat(other.next(dir, Project.class, null)).isEqualTo(111L);
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testIdBlocksShared() throws Exception {
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			// each index stands for one process using the same volume
+			FileIndexImpl[] indexes = new FileIndexImpl[3];
+			for (int i = 0; i < indexes.length; i++) {
+				indexes[i] = new FileIndexImpl();
+				ReflectionTestUtils.setField(indexes[i], "block", 5);
+				ReflectionTestUtils.setField(indexes[i], "lock", FileIndexImpl.LOCK_PROCESS);
+			}
+			List<Object> ids = Collections.synchronizedList(new ArrayList<>());
+			Thread[] threads = new Thread[6];
+			for (int i = 0; i < threads.length; i++) {
+				FileIndexImpl index = indexes[i % indexes.length];
+				threads[i] = new Thread(() -> {
+					for (int j = 0; j < 20; j++) {
+						ids.add(index.next(dir, Project.class, null));
+					}
+				});
+				threads[i].start();
+			}
+			for (Thread t : threads) {
+				t.join();
+			}
+			assertThat(ids).hasSize(120).doesNotHaveDuplicates();
+			assertThat(Long.valueOf(Files.readString(new File(dir, ".index/.data.current").toPath())))
+					.isGreaterThanOrEqualTo(120L);
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testWriteAll(@Autowired ApplicationContext context) throws IOException {
+		IFileStorageTyped<Project> storage = context.getBean(ProjectStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			Project first = storage.write(dir, Project.builder().name("project0").description("old").build());
+
+			List<Project> batch = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				batch.add(Project.builder().name("project" + i).description("new").revision(0L).build());
+			}
+			List<Project> saved = storage.writeAll(dir, batch);
+
+			assertThat(saved).hasSize(50);
+			assertThat(saved.get(0).getId()).isEqualTo(first.getId());
+			assertThat(saved.get(0).getCreated()).isEqualTo(first.getCreated());
+			assertThat(saved.get(0).getRevision()).isEqualTo(1L);
+			assertThat(saved.stream().map(Project::getId)).doesNotHaveDuplicates();
+			assertThat(saved.get(49).getId()).isEqualTo(50L);
+			assertThat(storage.count(dir, null)).isEqualTo(50L);
+			assertThat(storage.read(dir, KeyParams.of("project7")).getDescription()).isEqualTo("new");
+			assertThat(new File(storage.location(dir, KeyParams.of("project7")), "data@resources/.keep")).exists();
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testReadAll(@Autowired ApplicationContext context) throws IOException {
+		IFileStorageTyped<Project> storage = context.getBean(ProjectStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			List<KeyParams> keys = new ArrayList<>();
+			for (int i = 0; i < 40; i++) {
+				storage.write(dir, Project.builder().name("project" + i).build());
+				keys.add(KeyParams.of("project" + (39 - i)));
+			}
+			keys.add(20, KeyParams.of("missing"));
+
+			List<Project> result = storage.readAll(dir, keys);
+			assertThat(result).hasSize(41);
+			assertThat(result.get(0).getName()).isEqualTo("project39");
+			assertThat(result.get(20)).isNull();
+			assertThat(result.get(40).getName()).isEqualTo("project0");
+
+			FileExecutorImpl executor = new FileExecutorImpl();
+			ReflectionTestUtils.setField(executor, "parallelism", 4);
+			ReflectionTestUtils.setField(executor, "chunk", 1);
+			try {
+				assertThat(executor.map(Arrays.asList(1, 2, 3, 4, 5), i -> i * 10)).containsExactly(10, 20, 30, 40, 50);
+				assertThatThrownBy(() -> executor.map(Arrays.asList(1, 2, 3, 4), i -> 12 / (i - 4)))
+						.isInstanceOf(ArithmeticException.class);
+			} finally {
+				executor.shutdown();
+			}
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testListParallel(@Autowired ApplicationContext context) throws IOException {
+		IFileStorage sequential = context.getBean(IFileStorage.class);
+		FileStorageImpl storage = context.getAutowireCapableBeanFactory().createBean(FileStorageImpl.class);
+		FileExecutorImpl executor = new FileExecutorImpl();
+		ReflectionTestUtils.setField(executor, "parallelism", 4);
+		ReflectionTestUtils.setField(executor, "chunk", 1);
+		ReflectionTestUtils.setField(storage, "executor", executor);
+		ReflectionTestUtils.setField(storage, "parallelList", true);
+		ReflectionTestUtils.setField(storage, "parallelBatch", 7);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			for (int i = 0; i < 30; i++) {
+				sequential.write(dir, Project.builder().name("project" + i).build());
+			}
+			Files.write(new File(sequential.location(dir, Project.class, KeyParams.of("project3")), "data.json")
+					.toPath(), "Set invalid file!".getBytes(), StandardOpenOption.TRUNCATE_EXISTING);
+
+			List<Project> expected = sequential.list(dir, Project.class, null);
+			assertThat(expected).hasSize(29);
+			assertThat(storage.list(dir, Project.class, null)).containsExactlyElementsOf(expected);
+			assertThat(storage.list(dir, Project.class,
+					SearchParams.builder().paging(FilePaging.builder().skip(5).max(10).build()).build()))
+					.containsExactlyElementsOf(expected.subList(5, 15));
+		} finally {
+			executor.shutdown();
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testCache(@Autowired ApplicationContext context) throws IOException {
+		IFileStorage plain = context.getBean(IFileStorage.class);
+		AutowireCapableBeanFactory factory = context.getAutowireCapableBeanFactory();
+		FileSerializerCachedImpl cached = factory.createBean(FileSerializerCachedImpl.class);
+		ReflectionTestUtils.setField(cached, "entries", 2);
+		FileSerializerImpl delegate = Mockito.spy(context.getBean(FileSerializerImpl.class));
+		ReflectionTestUtils.setField(cached, "delegate", delegate);
+		FileWalImpl wal = factory.createBean(FileWalImpl.class);
+		ReflectionTestUtils.setField(wal, "enabled", true);
+		FileStorageImpl storage = factory.createBean(FileStorageImpl.class);
+		ReflectionTestUtils.setField(storage, "wal", wal);
+		storage.setSerializer(cached);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			Project project = storage.write(dir, Project.builder().name("project").description("a").build());
+
+			// written objects are kept, log payloads are not
+			Mockito.clearInvocations(delegate);
+			assertThat(storage.read(dir, Project.class, KeyParams.of("project")).getDescription()).isEqualTo("a");
+			Mockito.verify(delegate, Mockito.never()).readValue(Mockito.any(), Mockito.any());
+
+			// defensive copies
+			Project read1 = storage.read(dir, Project.class, KeyParams.of("project"));
+			read1.setDescription("changed");
+			Project read2 = storage.read(dir, Project.class, KeyParams.of("project"));
+			assertThat(read2).isNotSameAs(read1);
+			assertThat(read2.getDescription()).isEqualTo("a");
+			assertThat(read2.getId()).isEqualTo(project.getId());
+
+			// changes by others are detected
+			Project other = plain.read(dir, Project.class, KeyParams.of("project"));
+			other.setDescription("from another writer");
+			plain.write(dir, other);
+			assertThat(storage.read(dir, Project.class, KeyParams.of("project")).getDescription())
+					.isEqualTo("from another writer");
+
+			// bounded
+			for (int i = 0; i < 5; i++) {
+				storage.write(dir, Project.builder().name("project" + i).build());
+			}
+			Map<?, ?> entries = (Map<?, ?>) ReflectionTestUtils.getField(cached, "cache");
+			assertThat(entries).hasSize(2);
+			assertThat(entries.keySet()).allSatisfy(
+					f -> assertThat(((File) f).getParentFile().getName()).isIn("project3", "project4"));
+			assertThat(storage.count(dir, Project.class, null)).isEqualTo(6L);
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testWriteKnownVersion(@Autowired ApplicationContext context) throws IOException {
+		FileSerializerImpl serializer = Mockito.spy(context.getBean(FileSerializerImpl.class));
+		FileStorageImpl storage = context.getAutowireCapableBeanFactory().createBean(FileStorageImpl.class);
+		storage.setSerializer(serializer);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			Project project = storage.write(dir, Project.builder().name("project").description("a").build());
+			Mockito.clearInvocations(serializer);
+
+			Project changed = storage.setProperty(dir, Project.class, KeyParams.of("project"), "description", "b");
+			Mockito.verify(serializer, Mockito.times(1)).readValue(Mockito.any(), Mockito.any());
+			assertThat(changed.getId()).isEqualTo(project.getId());
+			assertThat(changed.getCreated()).isEqualTo(project.getCreated());
+			assertThat(changed.getRevision()).isEqualTo(project.getRevision() + 1);
+
+			assertThatThrownBy(() -> storage.setProperty(dir, Project.class, KeyParams.of("project"),
+					"createdBy.user", "someone")).isInstanceOf(FileStorageException.class);
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testSerializerFormats(@Autowired ApplicationContext context) throws IOException {
+		FileStorageImpl storage = context.getAutowireCapableBeanFactory().createBean(FileStorageImpl.class);
+		Function<String, FileSerializerImpl> serializer = format -> {
+			FileSerializerImpl result = new FileSerializerImpl();
+			ReflectionTestUtils.setField(result, "format", format);
+			ReflectionTestUtils.setField(result, "formats", "json, smile, cbor");
+			result.configure();
+			return result;
+		};
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			storage.setSerializer(serializer.apply("json"));
+			storage.write(dir, Project.builder().name("project0").description("pretty").build());
+			storage.write(dir, ObjectWrapped.builder().name("wrapped").build());
+			File project0 = storage.location(dir, Project.class, KeyParams.of("project0"));
+
+			storage.setSerializer(serializer.apply("compact"));
+			storage.write(dir, Project.builder().name("project1").description("compact").build());
+			File project1 = storage.location(dir, Project.class, KeyParams.of("project1"));
+			assertThat(Files.readAllLines(new File(project1, "data.json").toPath())).hasSize(1);
+
+			// binary formats replace other formats when objects are written
+			storage.setSerializer(serializer.apply("smile"));
+			storage.setProperty(dir, Project.class, KeyParams.of("project0"), "description", "smile");
+			assertThat(new File(project0, "data.json")).doesNotExist();
+			assertThat(FileSerializerImpl.detect(Files.readAllBytes(new File(project0, "data.smile").toPath())))
+					.isEqualTo(FileSerializerImpl.Format.SMILE);
+
+			storage.setSerializer(serializer.apply("cbor"));
+			storage.setProperty(dir, ObjectWrapped.class, KeyParams.of("wrapped"), "description", "cbor");
+			storage.write(dir, Project.builder().name("project2").description("cbor").build());
+			assertThat(FileSerializerImpl.detect(Files.readAllBytes(
+					new File(storage.location(dir, Project.class, KeyParams.of("project2")), "data.cbor").toPath())))
+					.isEqualTo(FileSerializerImpl.Format.CBOR);
+
+			// mixed repository
+			assertThat(storage.list(dir, Project.class,
+					SearchParams.builder()
+							.sorting(FileSorting.builder().property("name").sort(FileSorting.SORT_ASCENDING).build())
+							.build())
+					.stream().map(Project::getDescription)).containsExactly("smile", "compact", "cbor");
+			assertThat(storage.read(dir, ObjectWrapped.class, KeyParams.of("wrapped")).getDescription())
+					.isEqualTo("cbor");
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testSerializerReaders(@Autowired ApplicationContext context) throws Exception {
+		FileSerializerImpl serializer = new FileSerializerImpl();
+		serializer.configure();
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			// generic types
+			Object products = serializer.decode("[{\"name\":\"a\"},{\"name\":\"b\"}]",
+					Project.class.getDeclaredField("products").getAnnotatedType());
+			assertThat(products).asList().extracting(p -> ((ProductAlias) p).getName()).containsExactly("a", "b");
+
+			// readers/writers resolved once
+			dir.mkdirs();
+			File project = new File(dir, "project.json");
+			File wrapped = new File(dir, "wrapped.json");
+			for (int i = 0; i < 3; i++) {
+				serializer.writeValue(project, Project.builder().name("project" + i).build());
+				assertThat(serializer.readValue(project, Project.class).getName()).isEqualTo("project" + i);
+				serializer.writeValue(wrapped, ObjectWrapped.builder().name("wrapped" + i).build());
+				assertThat(serializer.readValue(wrapped, ObjectWrapped.class).getName()).isEqualTo("wrapped" + i);
+			}
+			Map<?, ?> codecs = (Map<?, ?>) ReflectionTestUtils.getField(serializer, "codecs");
+			Map<?, ?> codecsWrapped = (Map<?, ?>) ReflectionTestUtils.getField(serializer, "codecsWrapped");
+			Object json = codecs.get(FileSerializerImpl.Format.JSON);
+			Object jsonWrapped = codecsWrapped.get(FileSerializerImpl.Format.JSON);
+			assertThat(((Map<Object, ?>) ReflectionTestUtils.getField(json, "readers")).keySet()).containsOnly(
+					Project.class.getDeclaredField("products").getGenericType(), Project.class);
+			assertThat(((Map<Object, ?>) ReflectionTestUtils.getField(json, "writers")).keySet())
+					.containsOnly(Project.class);
+			assertThat(((Map<Object, ?>) ReflectionTestUtils.getField(jsonWrapped, "readers")).keySet())
+					.containsOnly(FileSerializerImpl.ObjectWrapper.class);
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testSerializerBuffers(@Autowired ApplicationContext context) {
+		FileSerializerImpl serializer = new FileSerializerImpl();
+		serializer.configure();
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			dir.mkdirs();
+			assertThat(serializer.encode(Project.builder().name("ação").build())).contains("\"ação\"");
+
+			// larger than the pooled buffer, then smaller ones reusing it
+			char[] large = new char[2 * 1024 * 1024];
+			Arrays.fill(large, 'x');
+			File project = new File(dir, "large.json");
+			serializer.writeValue(project, Project.builder().name("large").description(new String(large)).build());
+			assertThat(serializer.readValue(project, Project.class).getDescription()).hasSize(large.length);
+			for (int i = 0; i < 3; i++) {
+				File small = new File(dir, "small" + i + ".json");
+				char[] text = new char[(3 - i) * 10000];
+				Arrays.fill(text, 'y');
+				serializer.writeValue(small, Project.builder().name("small" + i).description(new String(text)).build());
+				Project read = serializer.readValue(small, Project.class);
+				assertThat(read.getName()).isEqualTo("small" + i);
+				assertThat(read.getDescription()).hasSize(text.length);
+			}
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testDurability(@Autowired ApplicationContext context) throws IOException {
+		AutowireCapableBeanFactory factory = context.getAutowireCapableBeanFactory();
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			for (IFileWriter.Durability mode : IFileWriter.Durability.values()) {
+				FileWriterImpl writer = factory.createBean(FileWriterImpl.class);
+				ReflectionTestUtils.setField(writer, "durability", mode.name().toLowerCase());
+				ReflectionTestUtils.setField(writer, "groupJournal", new File(dir, "journal").getPath());
+				writer.configure();
+				assertThat(writer.getDurability()).isEqualTo(mode);
+				FileStorageImpl storage = factory.createBean(FileStorageImpl.class);
+				ReflectionTestUtils.setField(storage, "writer", writer);
+
+				File base = new File(dir, mode.name());
+				KeyParams keys = KeyParams.of("project1");
+				storage.write(base, Project.builder().name("project1").description("first").build());
+				storage.setProperty(base, Project.class, keys, "description", "second");
+				storage.setResource(base, Project.class, keys,
+						Resource.builder().metadata(ResourceMetadata.builder().path("sub/text.txt").build())
+								.content(ResourceContent.builder().data("text".getBytes()).build()).build());
+				assertThat(storage.read(base, Project.class, keys).getDescription()).isEqualTo("second");
+				assertThat(storage.listResources(base, Project.class, keys, null)).hasSize(1);
+
+				// failed writes keep the previous content
+				File file = new File(storage.location(base, Project.class, keys), "data.json");
+				if (mode != IFileWriter.Durability.NONE) {
+					assertThatThrownBy(() -> writer.write(file, f -> {
+						Files.write(f.toPath(), "{ partial".getBytes());
+						throw new IOException("crash");
+					})).isInstanceOf(FileStorageException.class);
+					assertThat(storage.read(base, Project.class, keys).getDescription()).isEqualTo("second");
+				}
+				try (Stream<Path> files = Files.walk(base.toPath())) {
+					assertThat(files.map(p -> p.getFileName().toString()).filter(IFileWriter::isTemporary))
+							.isEmpty();
+				}
+
+				storage.deleteResource(base, Project.class, keys, "sub/text.txt");
+				storage.delete(base, Project.class, keys);
+				assertThat(storage.exists(base, Project.class, keys)).isFalse();
+				writer.shutdown();
+			}
+
+			FileWriterImpl invalid = new FileWriterImpl();
+			ReflectionTestUtils.setField(invalid, "durability", "never");
+			assertThatThrownBy(invalid::configure).isInstanceOf(FileStorageException.class);
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testResourcesTemporaryNames(@Autowired ApplicationContext context) {
+		IFileStorage storage = context.getBean(IFileStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		Function<String, Resource> resource = path -> Resource.builder()
+				.metadata(ResourceMetadata.builder().path(path).build())
+				.content(ResourceContent.builder().data(path.getBytes()).build()).build();
+		try {
+			storage.write(dir, Project.builder().name("project1").build());
+			KeyParams keys = KeyParams.of("project1");
+			// names like temporary files of other tools are plain resources
+			storage.setResource(dir, Project.class, keys, resource.apply(".draft.tmp"));
+			storage.setResource(dir, Project.class, keys, resource.apply("sub/.name.1a2b.tmp"));
+			assertThat(storage.listResources(dir, Project.class, keys, null).stream()
+					.map(r -> r.getMetadata().getPath())).containsExactly(".draft.tmp", "sub/.name.1a2b.tmp");
+			try (Stream<Resource> stream = storage.streamResources(dir, Project.class, keys, null)) {
+				assertThat(stream).hasSize(2);
+			}
+
+			// reserved for the writer
+			assertThatThrownBy(() -> storage.setResource(dir, Project.class, keys,
+					resource.apply("sub/" + IFileWriter.TEMPORARY + "name"))).isInstanceOf(FileStorageException.class);
+			assertThat(storage.countResources(dir, Project.class, keys, null)).isEqualTo(2L);
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testDurabilityGroup(@Autowired ApplicationContext context) throws Exception {
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		File journal = new File(dir, "journal");
+		class Counting extends FileWriterImpl {
+			final AtomicInteger forced = new AtomicInteger();
+
+			@Override
+			protected void force(File file) {
+				forced.incrementAndGet();
+				super.force(file);
+			}
+
+			@Override
+			protected void force(FileChannel channel, boolean metadata) throws IOException {
+				forced.incrementAndGet();
+				super.force(channel, metadata);
+			}
+		}
+		Function<String, Counting> start = mode -> {
+			Counting writer = new Counting();
+			ReflectionTestUtils.setField(writer, "durability", mode);
+			ReflectionTestUtils.setField(writer, "groupWait", 5000L);
+			ReflectionTestUtils.setField(writer, "groupJournal", journal.getPath());
+			writer.configure();
+			return writer;
+		};
+		FileExecutorImpl executor = new FileExecutorImpl();
+		ReflectionTestUtils.setField(executor, "parallelism", 8);
+		ReflectionTestUtils.setField(executor, "chunk", 1);
+		int count = 32;
+		List<Integer> items = IntStream.range(0, count).boxed().collect(Collectors.toList());
+		Counting sync = start.apply("sync");
+		Counting group = start.apply("group");
+		try {
+			// the same concurrent writes, counting flushes
+			Map<FileWriterImpl, Integer> flushes = new HashMap<>();
+			for (Counting writer : Arrays.asList(sync, group)) {
+				File base = new File(dir, writer.getDurability().name());
+				writer.mkdirs(base);
+				int before = writer.forced.get();
+				executor.map(items, i -> {
+					writer.write(new File(base, "file" + i + ".txt"), ("content" + i).getBytes());
+					return i;
+				});
+				flushes.put(writer, writer.forced.get() - before);
+				for (int i : items) {
+					assertThat(Files.readString(new File(base, "file" + i + ".txt").toPath()))
+							.isEqualTo("content" + i);
+				}
+			}
+			// sync flushes every file and its directory, group the journal once per batch
+			assertThat(flushes.get(sync)).isEqualTo(2 * count);
+			assertThat(flushes.get(group)).isBetween(1, count / 2);
+
+			// a journal of its own is required
+			Counting unset = new Counting();
+			ReflectionTestUtils.setField(unset, "durability", "group");
+			assertThatThrownBy(unset::configure).isInstanceOf(FileStorageException.class)
+					.hasMessageContaining("file.storage.durability.group.journal");
+
+			// one writer per journal
+			assertThatThrownBy(() -> start.apply("group")).isInstanceOf(FileStorageException.class)
+					.hasMessageContaining("in use");
+
+			// a crash before checkpoint: the journal brings back the writes
+			File base = new File(dir, "GROUP");
+			File copy = new File(dir, "journal.crash");
+			group.delete(new File(base, "file0.txt"));
+			Files.copy(journal.toPath(), copy.toPath());
+			group.shutdown();
+			assertThat(journal).isEmpty();
+			assertThatThrownBy(() -> group.write(new File(base, "late.txt"), "late".getBytes()))
+					.isInstanceOf(FileStorageException.class);
+
+			FileUtils.delete(base);
+			Files.move(copy.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Counting recovered = start.apply("group");
+			try {
+				assertThat(journal).isEmpty();
+				assertThat(new File(base, "file0.txt")).doesNotExist();
+				for (int i = 1; i < count; i++) {
+					assertThat(Files.readString(new File(base, "file" + i + ".txt").toPath()))
+							.isEqualTo("content" + i);
+				}
+			} finally {
+				recovered.shutdown();
+			}
+		} finally {
+			executor.shutdown();
+			sync.shutdown();
+			group.shutdown();
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testWal(@Autowired ApplicationContext context) throws IOException {
+		AutowireCapableBeanFactory factory = context.getAutowireCapableBeanFactory();
+		Function<IFileWriter, FileStorageImpl> start = writer -> {
+			FileWalImpl wal = Mockito.spy(factory.createBean(FileWalImpl.class));
+			ReflectionTestUtils.setField(wal, "enabled", true);
+			ReflectionTestUtils.setField(wal, "writer", writer);
+			FileStorageImpl storage = factory.createBean(FileStorageImpl.class);
+			ReflectionTestUtils.setField(storage, "writer", writer);
+			ReflectionTestUtils.setField(storage, "wal", wal);
+			return storage;
+		};
+		IFileWriter writer = context.getBean(IFileWriter.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		File wal = new File(dir, FileWalImpl.DIRECTORY);
+		try {
+			FileStorageImpl storage = start.apply(writer);
+			storage.write(dir, Project.builder().name("project1").build());
+			storage.writeAll(dir, Project.class, Arrays.asList(Project.builder().name("project2").build(),
+					Project.builder().name("project3").build()));
+			storage.delete(dir, Project.class, KeyParams.of("project3"));
+			// header, then begin and commit of each
+			assertThat(Files.readAllLines(new File(wal, "wal.log").toPath())).hasSize(7);
+			assertThat(wal.list()).containsExactlyInAnyOrder("wal.log", "wal.log.lock");
+
+			// crash after the ids were bound, before the object file
+			IFileWriter crashWrite = Mockito.spy(writer);
+			Mockito.doThrow(new FileStorageException("crash", null)).when(crashWrite).write(
+					Mockito.argThat(f -> f != null && f.getName().equals("data.json")),
+					Mockito.any(IFileWriter.Content.class));
+			assertThatThrownBy(() -> start.apply(crashWrite).write(dir, Project.builder().name("project4").build()))
+					.hasMessage("crash");
+			assertThat(new File(storage.location(dir, Project.class, KeyParams.of("project4")), "data.json"))
+					.doesNotExist();
+
+			// crash after the object file was removed, before its resources and ids
+			IFileWriter crashDelete = Mockito.spy(writer);
+			Mockito.doThrow(new FileStorageException("crash", null)).when(crashDelete)
+					.delete(Mockito.argThat(f -> f != null && f.getName().endsWith("@resources")));
+			FileStorageImpl failing = start.apply(crashDelete);
+			assertThatThrownBy(() -> failing.delete(dir, Project.class, KeyParams.of("project2"))).hasMessage("crash");
+			assertThat(storage.location(dir, Project.class, KeyParams.of("project2"))).exists();
+
+			// restart redoes both
+			FileStorageImpl restarted = start.apply(writer);
+			assertThat(restarted.list(dir, Project.class, null).stream().map(Project::getName))
+					.containsExactlyInAnyOrder("project1", "project4");
+			assertThat(restarted.read(dir, Project.class, KeyParams.of("project4")).getId()).isNotNull();
+			assertThat(restarted.location(dir, Project.class, KeyParams.of("project2"))).doesNotExist();
+			assertThat(Files.readAllLines(new File(wal, "wal.log").toPath())).hasSize(1);
+			assertThat(wal.list()).containsExactlyInAnyOrder("wal.lock", "wal.log", "wal.log.lock");
+			// once per repository, not on every access
+			Mockito.verify((IFileWal) ReflectionTestUtils.getField(restarted, "wal"), Mockito.times(1))
+					.recover(Mockito.any(), Mockito.any(), Mockito.any());
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testLocks(@Autowired ApplicationContext context) throws Exception {
+		FileLocksImpl locks = new FileLocksImpl();
+		ReflectionTestUtils.setField(locks, "stripes", 16);
+		locks.configure();
+		File entity = new File("target/data/entity");
+		try (IFileLocks.Hold hold = locks.read(entity)) {
+			// readers share
+			CompletableFuture.runAsync(() -> locks.read(entity).close()).get(5, TimeUnit.SECONDS);
+			CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> locks.write(entity).close());
+			assertThatThrownBy(() -> writer.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+			hold.close();
+			writer.get(5, TimeUnit.SECONDS);
+		}
+		// reentrant, and many objects at once
+		try (IFileLocks.Hold all = locks.write(Arrays.asList(new File("a"), new File("b"), entity, entity));
+				IFileLocks.Hold hold = locks.write(entity); IFileLocks.Hold read = locks.read(entity)) {
+			assertThat(all).isNotNull();
+		}
+
+		FileStorageImpl storage = context.getAutowireCapableBeanFactory().createBean(FileStorageImpl.class);
+		FileExecutorImpl executor = new FileExecutorImpl();
+		ReflectionTestUtils.setField(executor, "parallelism", 8);
+		ReflectionTestUtils.setField(executor, "chunk", 1);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			Project project = storage.write(dir, Project.builder().name("project").build());
+			int count = 64;
+			executor.map(IntStream.range(0, count).boxed().collect(Collectors.toList()), i -> {
+				if (i % 2 == 0) {
+					return storage.setProperty(dir, Project.class, KeyParams.of("project"), "description", "d" + i);
+				}
+				return storage.setProperty(dir, Project.class, "description", "d" + i, null);
+			});
+			// no lost updates
+			assertThat(storage.read(dir, Project.class, KeyParams.of("project")).getRevision())
+					.isEqualTo(project.getRevision() + count);
+		} finally {
+			executor.shutdown();
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testWriteIfRevision(@Autowired ApplicationContext context) throws Exception {
+		IFileStorage storage = context.getBean(IFileStorage.class);
+		FileExecutorImpl executor = new FileExecutorImpl();
+		ReflectionTestUtils.setField(executor, "parallelism", 8);
+		ReflectionTestUtils.setField(executor, "chunk", 1);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			// must not exist
+			Project project = storage.writeIfRevision(dir, Project.class, Project.builder().name("project").build(), -1);
+			long revision = project.getRevision();
+			assertThatThrownBy(() -> storage.writeIfRevision(dir, Project.class,
+					Project.builder().name("project").build(), -1))//
+							.isInstanceOf(FileStorageConcurrencyException.class);
+
+			// expected revision
+			project.setDescription("changed");
+			project = storage.writeIfRevision(dir, Project.class, project, revision);
+			assertThat(project.getRevision()).isEqualTo(revision + 1);
+			Project stale = project;
+			assertThatThrownBy(() -> storage.writeIfRevision(dir, Project.class, stale, revision))//
+					.isInstanceOfSatisfying(FileStorageConcurrencyException.class, e -> {
+						assertThat(e.getExpected()).isEqualTo(revision);
+						assertThat(e.getActual()).isEqualTo(revision + 1);
+					});
+			assertThat(storage.read(dir, Project.class, KeyParams.of("project")).getDescription())
+					.isEqualTo("changed");
+
+			// racing writers, only one wins
+			long current = project.getRevision();
+			List<Boolean> results = executor.map(IntStream.range(0, 16).boxed().collect(Collectors.toList()), i -> {
+				try {
+					storage.writeIfRevision(dir, Project.class,
+							Project.builder().name("project").description("d" + i).build(), current);
+					return true;
+				} catch (FileStorageConcurrencyException e) {
+					return false;
+				}
+			});
+			assertThat(results.stream().filter(b -> b).count()).isEqualTo(1);
+			assertThat(storage.read(dir, Project.class, KeyParams.of("project")).getRevision())
+					.isEqualTo(current + 1);
+
+			// stored without revision: counts as 0 and advances, the second writer on 0 fails
+			Project legacy = storage.write(dir, Project.builder().name("legacy").build());
+			legacy.setRevision(null);
+			context.getBean(IFileSerializer.class).writeValue(
+					new File(storage.location(dir, Project.class, KeyParams.of("legacy")), "data.json"), legacy);
+			assertThat(storage.writeIfRevision(dir, Project.class,
+					Project.builder().name("legacy").description("first").build(), 0).getRevision()).isEqualTo(1L);
+			assertThatThrownBy(() -> storage.writeIfRevision(dir, Project.class,
+					Project.builder().name("legacy").description("second").build(), 0))//
+							.isInstanceOfSatisfying(FileStorageConcurrencyException.class,
+									e -> assertThat(e.getActual()).isEqualTo(1L));
+			assertThat(storage.read(dir, Project.class, KeyParams.of("legacy")).getDescription())
+					.isEqualTo("first");
+		} finally {
+			executor.shutdown();
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testAsync(@Autowired ApplicationContext context) throws Exception {
+		IFileStorageAsyncTyped<Project> storage = context.getBean(ProjectStorageAsync.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			List<CompletableFuture<Project>> writes = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				writes.add(storage.write(dir, Project.builder().name("project" + i).build()));
+			}
+			CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+			assertThat(storage.count(dir, null).get(10, TimeUnit.SECONDS)).isEqualTo(10L);
+			assertThat(storage.read(dir, KeyParams.of("project3")).thenApply(Project::getName).get(10,
+					TimeUnit.SECONDS)).isEqualTo("project3");
+			// failures complete the future
+			assertThatThrownBy(() -> storage.read(dir, KeyParams.of("missing")).get(10, TimeUnit.SECONDS))
+					.isInstanceOf(ExecutionException.class).hasCauseInstanceOf(FileStorageNotFoundException.class);
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	@Test
+	void testAsyncBounded(@Autowired ApplicationContext context) throws Exception {
+		for (boolean virtual : new boolean[] { false, true }) {
+			CountDownLatch release = new CountDownLatch(1);
+			IFileStorage blocking = Mockito.mock(IFileStorage.class);
+			Mockito.when(blocking.exists(Mockito.any(), Mockito.eq(Project.class), Mockito.any(KeyParams.class)))
+					.then(i -> release.await(10, TimeUnit.SECONDS));
+			FileStorageAsyncImpl async = new FileStorageAsyncImpl();
+			ReflectionTestUtils.setField(async, "storage", blocking);
+			ReflectionTestUtils.setField(async, "threads", 1);
+			ReflectionTestUtils.setField(async, "queue", 1);
+			ReflectionTestUtils.setField(async, "virtual", virtual);
+			async.configure();
+			try {
+				File dir = new File("target/data");
+				CompletableFuture<Boolean> running = async.exists(dir, Project.class, KeyParams.of("a"));
+				CompletableFuture<Boolean> queued = async.exists(dir, Project.class, KeyParams.of("b"));
+				// saturated, fails at once
+				CompletableFuture<Boolean> rejected = async.exists(dir, Project.class, KeyParams.of("c"));
+				assertThatThrownBy(() -> rejected.getNow(null)).hasCauseInstanceOf(RejectedExecutionException.class);
+				release.countDown();
+				assertThat(running.get(10, TimeUnit.SECONDS)).isTrue();
+				assertThat(queued.get(10, TimeUnit.SECONDS)).isTrue();
+			} finally {
+				async.shutdown();
+			}
+		}
+	}
+
+	@Test
+	void testPublisher(@Autowired ApplicationContext context) throws Exception {
+		IFileStorageAsyncTyped<Project> async = context.getBean(ProjectStorageAsync.class);
+		IFileStorage storage = context.getBean(IFileStorage.class);
+		File dir = new File("target/data/storage_" + System.currentTimeMillis());
+		try {
+			for (int i = 0; i < 10; i++) {
+				storage.write(dir, Project.builder().name("project" + i).build());
+			}
+			Collector<Project> all = new Collector<>(Long.MAX_VALUE);
+			async.publish(dir, null).subscribe(all);
+			assertThat(all.completed.get(10, TimeUnit.SECONDS)).hasSize(10);
+
+			for (String path : Arrays.asList("b.txt", "a/c.txt", "a.txt")) {
+				storage.setResource(dir, Project.class, KeyParams.of("project0"),
+						Resource.builder().metadata(ResourceMetadata.builder().path(path).contentType("txt").build())
+								.content(ResourceContent.builder().data(path.getBytes()).build()).build());
+			}
+			Collector<Resource> resources = new Collector<>(1);
+			async.publishResources(dir, KeyParams.of("project0"), null).subscribe(resources);
+			assertThat(resources.completed.get(10, TimeUnit.SECONDS))
+					.extracting(r -> new String(r.getContent().getData())).containsExactly("a.txt", "a/c.txt", "b.txt");
+		} finally {
+			try {
+				FileUtils.delete(dir);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		// demand and cancel
+		AtomicBoolean closed = new AtomicBoolean();
+		List<Integer> pulled = Collections.synchronizedList(new ArrayList<>());
+		IFileStorage lazy = Mockito.mock(IFileStorage.class);
+		Mockito.when(lazy.stream(Mockito.any(), Mockito.eq(Integer.class), Mockito.any()))
+				.then(i -> IntStream.range(0, 1000).boxed().peek(pulled::add).onClose(() -> closed.set(true)));
+		FileStorageAsyncImpl publisher = new FileStorageAsyncImpl();
+		ReflectionTestUtils.setField(publisher, "storage", lazy);
+		publisher.configure();
+		try {
+			Publisher<Integer> numbers = publisher.publish(dir, Integer.class, null);
+			List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+			CompletableFuture<Subscription> subscribed = new CompletableFuture<>();
+			numbers.subscribe(new Subscriber<Integer>() {
+				@Override
+				public void onSubscribe(Subscription s) {
+					subscribed.complete(s);
+				}
+
+				@Override
+				public void onNext(Integer t) {
+					received.add(t);
+				}
+
+				@Override
+				public void onError(Throwable t) {
+					subscribed.completeExceptionally(t);
+				}
+
+				@Override
+				public void onComplete() {
+					received.add(-1);
+				}
+			});
+			Subscription subscription = subscribed.get(10, TimeUnit.SECONDS);
+			subscription.request(3);
+			long start = System.currentTimeMillis();
+			while (received.size() < 3 && System.currentTimeMillis() - start < 10000) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(100);
+			assertThat(received).containsExactly(0, 1, 2);
+			// at most one item ahead of demand
+			assertThat(pulled.size()).isLessThanOrEqualTo(4);
+			subscription.cancel();
+			start = System.currentTimeMillis();
+			while (!closed.get() && System.currentTimeMillis() - start < 10000) {
+				Thread.sleep(10);
+			}
+			assertThat(closed).isTrue();
+			subscription.request(10);
+			Thread.sleep(100);
+			assertThat(received).containsExactly(0, 1, 2);
+		} finally {
+			publisher.shutdown();
+		}
+	}
+
+	@Test
+	void testExecutorVirtual(@Autowired ApplicationContext context) throws Exception {
+		boolean available = Arrays.stream(Executors.class.getMethods())
+				.anyMatch(m -> m.getName().equals("newVirtualThreadPerTaskExecutor"));
+		FileExecutorImpl executor = new FileExecutorImpl();
+		ReflectionTestUtils.setField(executor, "parallelism", 2);
+		ReflectionTestUtils.setField(executor, "virtual", true);
+		ReflectionTestUtils.setField(executor, "virtualMax", 64);
+		try {
+			// falls back to the pool on older JDKs
+			assertThat(executor.isVirtual()).isEqualTo(available);
+			assertThat(executor.getParallelism()).isEqualTo(available ? 64 : 2);
+			List<Integer> items = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+			// nested calls
+			assertThat(executor.map(items, i -> executor.map(Arrays.asList(i, i), j -> j * 2).get(1)))
+					.isEqualTo(items.stream().map(i -> i * 2).collect(Collectors.toList()));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testExecutorFailures(@Autowired ApplicationContext context) throws Exception {
+		FileExecutorImpl executor = new FileExecutorImpl();
+		ReflectionTestUtils.setField(executor, "parallelism", 2);
+		ReflectionTestUtils.setField(executor, "chunk", 1);
+		try {
+			// caller runs the first item, the pool the second
+			assertThatThrownBy(() -> executor.map(Arrays.asList(0, 1), i -> {
+				throw new IllegalStateException("fail " + i);
+			})).isExactlyInstanceOf(IllegalStateException.class).hasMessage("fail 0")
+					.satisfies(e -> assertThat(e.getSuppressed()).extracting(Throwable::getMessage)
+							.containsExactly("fail 1"));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	// requests a batch more each time the previous one is received
+	private static class Collector<T> implements Subscriber<T> {
+		private final long batch;
+		private final List<T> items = new ArrayList<>();
+		private final CompletableFuture<List<T>> completed = new CompletableFuture<>();
+		private Subscription subscription;
+		private long remaining;
+
+		Collector(long batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			subscription = s;
+			remaining = batch;
+			s.request(batch);
+		}
+
+		@Override
+		public void onNext(T t) {
+			items.add(t);
+			if (--remaining == 0) {
+				remaining = batch;
+				subscription.request(batch);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			completed.completeExceptionally(t);
+		}
+
+		@Override
+		public void onComplete() {
+			completed.complete(items);
+		}
+	}
+}
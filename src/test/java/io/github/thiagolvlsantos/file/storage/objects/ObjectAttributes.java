@@ -0,0 +1,30 @@
+package io.github.thiagolvlsantos.file.storage.objects;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.github.thiagolvlsantos.file.storage.entity.FileName;
+import io.github.thiagolvlsantos.file.storage.entity.FileRepo;
+import io.github.thiagolvlsantos.file.storage.util.entity.FileNamedObject;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@SuperBuilder
+@FileRepo(ObjectAttributes.REPO)
+@FileName(ObjectAttributes.FILE)
+public class ObjectAttributes extends FileNamedObject {
+
+	public static final String REPO = "repository";
+	public static final String FILE = "attributes";
+
+	private int priority;
+
+	@Builder.Default
+	private Map<String, Object> attributes = new HashMap<>();
+}
@@ -0,0 +1,13 @@
+package io.github.thiagolvlsantos.file.storage.objects;
+
+import org.springframework.stereotype.Component;
+
+import io.github.thiagolvlsantos.file.storage.impl.AFileStorageAsyncTypedImpl;
+
+@Component
+public class ProjectStorageAsync extends AFileStorageAsyncTypedImpl<Project> {
+
+	public ProjectStorageAsync() {
+		super(Project.class);
+	}
+}
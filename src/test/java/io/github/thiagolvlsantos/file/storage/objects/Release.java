@@ -0,0 +1,34 @@
+package io.github.thiagolvlsantos.file.storage.objects;
+
+import io.github.thiagolvlsantos.file.storage.entity.FileRepo;
+import io.github.thiagolvlsantos.file.storage.search.FileIndexed;
+import io.github.thiagolvlsantos.file.storage.util.entity.FileNamedObject;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@SuperBuilder
+@FileRepo(Release.REPO)
+public class Release extends FileNamedObject {
+
+	public static final String REPO = "releases";
+
+	public enum Status {
+		DRAFT, ACTIVE, RETIRED
+	}
+
+	@FileIndexed
+	private Status status;
+
+	@FileIndexed
+	private Integer priority;
+
+	@FileIndexed
+	private Double score;
+}